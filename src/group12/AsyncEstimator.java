@@ -0,0 +1,141 @@
+package group12;
+
+import genius.core.Bid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a {@link PreferenceEstimator} on a background thread so the agent never waits for a solve.
+ *
+ * Rankings are submitted from the negotiation thread and solved one at a time on the worker, a ranking
+ * that is still queued when a newer one comes in is dropped. Every optimal solve publishes a fresh
+ * {@link Snapshot} of the utilities and the ranking they were solved for, which is never changed afterwards.
+ */
+public class AsyncEstimator {
+    private PreferenceEstimator estimator;
+    private ExecutorService worker;
+    //newest ranking that has not been picked up by the worker yet
+    private AtomicReference<List<Bid>> pending;
+    private volatile Snapshot snapshot;
+    private volatile double timeLimit = Double.POSITIVE_INFINITY;
+
+    public AsyncEstimator(PreferenceEstimator estimator){
+        this.estimator = estimator;
+        pending = new AtomicReference<>();
+        snapshot = new Snapshot(estimator.getUtilities().clone(), null, 0);
+        worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "group12-estimator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a solve for the ranking and returns straight away.
+     */
+    public void submit(List<Bid> bidList){
+        //only schedule the worker if there was nothing queued, otherwise the queued run picks this one up
+        if(pending.getAndSet(new ArrayList<>(bidList)) == null){
+            worker.execute(this::solve);
+        }
+    }
+
+    /**
+     * Caps the solves that start from now on, see {@link PreferenceEstimator#setTimeLimit(double)}.
+     */
+    public void setTimeLimit(double seconds){
+        timeLimit = seconds;
+    }
+
+    /**
+     * Blocks until every submitted ranking has been solved.
+     */
+    public void await(){
+        try{
+            worker.submit(() -> {}).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return utilities of the latest optimal solve, don't modify
+     */
+    public double[] getUtilities(){
+        return snapshot.utilities;
+    }
+
+    /**
+     * @return the latest optimal solve
+     */
+    public Snapshot getSnapshot(){
+        return snapshot;
+    }
+
+    public void dispose(){
+        if(!worker.isShutdown()){
+            worker.execute(estimator::dispose);
+            worker.shutdown();
+        }
+    }
+
+    private void solve(){
+        List<Bid> bidList = pending.getAndSet(null);
+        if(bidList == null){
+            return;
+        }
+        try{
+            estimator.setTimeLimit(timeLimit);
+            if(!estimator.update(bidList)){
+                return;
+            }
+            if(estimator.optimize()){
+                Bid top = bidList.isEmpty() ? null : bidList.get(bidList.size()-1);
+                snapshot = new Snapshot(estimator.getUtilities().clone(), top, bidList.size());
+            } else {
+                System.out.println("Estimation " + estimator.getStatus() + " after " + estimator.getSolveTime() + "s, keeping the last estimate");
+            }
+        } catch (RuntimeException e) {
+            //keep the last snapshot, the next ranking gets a fresh try
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Utilities of an optimal solve, with the size and the highest bid of the ranking they were solved for.
+     * Before the first solve there is no highest bid and the size is 0.
+     */
+    public static final class Snapshot {
+        private final double[] utilities;
+        private final Bid top;
+        private final int size;
+
+        Snapshot(double[] utilities, Bid top, int size){
+            this.utilities = utilities;
+            this.top = top;
+            this.size = size;
+        }
+
+        /**
+         * @return estimated utility per value, don't modify
+         */
+        public double[] getUtilities(){
+            return utilities;
+        }
+
+        public Bid getTop(){
+            return top;
+        }
+
+        public int getSize(){
+            return size;
+        }
+    }
+}
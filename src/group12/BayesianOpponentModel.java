@@ -0,0 +1,344 @@
+package group12;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bayesian opponent model: a set of particles, each one a guess of the opponent's issue weights and value
+ * utilities, weighted by how well it explains the offers so far.
+ *
+ * An offer is assumed to be more likely the higher its utility for the opponent, so the likelihood of an
+ * offer under a particle is exp(BETA * (u - 1)). The likelihood update runs over the particles on the common
+ * fork/join pool, or on the calling thread when there are too few particles to be worth splitting. When the
+ * particle weights get too uneven the set is resampled systematically back to the same number of particles,
+ * with a little noise so the copies spread out again. The particles are stored as one array per issue and per
+ * value, so an update walks each array front to back.
+ *
+ * Updates are kept under a time budget. The likelihood tasks check the deadline, and an offer they could not
+ * finish in time is left out instead of being applied to part of the particles. A resample stops adding noise
+ * at the deadline, the particles it did not reach yet stay exact copies. After an update that took longer than
+ * the budget the number of particles is halved, after one that took less than a quarter of it the number grows
+ * back, up to the number the model started with.
+ */
+public class BayesianOpponentModel implements OpponentModel {
+    public static final int DEFAULT_PARTICLES = 2000;
+    private static final int MIN_PARTICLES = 64;
+    //in seconds
+    private static final double DEFAULT_BUDGET = 0.01;
+    //how strongly offers are assumed to favour the opponent
+    private static final double BETA = 2;
+    //standard deviation of the noise added to resampled particles
+    private static final double JITTER = 0.05;
+    //particles per fork/join task
+    private static final int CHUNK = 256;
+    //up to this many particles the likelihood is computed on the calling thread
+    private static final int SEQUENTIAL = 4 * CHUNK;
+
+    private BidCodec codec;
+    private Random random;
+    private double budget = DEFAULT_BUDGET;
+    private int numberOfBids;
+
+    private int particles;
+    //particles never grow back past the count the model started with
+    private int maxParticles;
+    //weights[i][p] is the weight of issue i and evaluations[c][p] the utility of value column c in particle p
+    private double[][] weights;
+    private double[][] evaluations;
+    private double[] logWeights;
+    //log likelihood of the offer being learned, added to logWeights once every particle has it
+    private double[] likelihoods;
+    //a likelihood task found the deadline passed
+    private volatile boolean timedOut;
+    private double lastUpdateTime;
+
+    //posterior mean score per column, null when an update came in since it was computed
+    private double[] scores;
+
+    public BayesianOpponentModel(BidCodec codec){
+        this(codec, DEFAULT_PARTICLES);
+    }
+
+    public BayesianOpponentModel(BidCodec codec, int particles){
+        this(codec, particles, new Random(particles));
+    }
+
+    public BayesianOpponentModel(BidCodec codec, int particles, Random random){
+        if(particles < 1){
+            throw new IllegalArgumentException("Need at least one particle: " + particles);
+        }
+        this.codec = codec;
+        this.random = random;
+        this.particles = particles;
+        maxParticles = particles;
+        ValueIndex index = codec.getValueIndex();
+        weights = new double[index.getIssueCount()][particles];
+        evaluations = new double[index.size()][particles];
+        logWeights = new double[particles];
+        likelihoods = new double[particles];
+
+        for(int p=0; p<particles; p++){
+            //weights uniform over the simplex, value utilities uniform with the best value of every issue at 1
+            double sum = 0;
+            for(int i=0; i<weights.length; i++){
+                weights[i][p] = -Math.log(1 - random.nextDouble());
+                sum += weights[i][p];
+            }
+            for(int i=0; i<weights.length; i++){
+                weights[i][p] /= sum;
+                int offset = index.offset(i);
+                double max = 0;
+                for(int v=0; v<index.getNumberOfValues(i); v++){
+                    evaluations[offset + v][p] = random.nextDouble();
+                    max = Math.max(max, evaluations[offset + v][p]);
+                }
+                for(int v=0; v<index.getNumberOfValues(i); v++){
+                    evaluations[offset + v][p] /= max;
+                }
+            }
+        }
+    }
+
+    public BidCodec getCodec(){
+        return codec;
+    }
+
+    /**
+     * Sets the wall clock seconds one update should stay under, infinite for no limit.
+     */
+    public void setTimeBudget(double seconds){
+        budget = seconds;
+    }
+
+    public int getNumberOfParticles(){
+        return particles;
+    }
+
+    /**
+     * @return wall clock seconds spent in the last update
+     */
+    public double getUpdateTime(){
+        return lastUpdateTime;
+    }
+
+    @Override
+    public void update(long id){
+        long start = System.nanoTime();
+        long deadline = Double.isInfinite(budget) ? Long.MAX_VALUE : start + (long) (budget * 1e9);
+        numberOfBids++;
+        scores = null;
+
+        int[] columns = new int[weights.length];
+        for(int i=0; i<columns.length; i++){
+            columns[i] = codec.column(id, i);
+        }
+        if(!likelihood(columns, deadline)){
+            lastUpdateTime = (System.nanoTime() - start) / 1e9;
+            return;
+        }
+
+        //normalize in log space, so long sessions don't underflow
+        double max = Double.NEGATIVE_INFINITY;
+        for(int p=0; p<particles; p++){
+            max = Math.max(max, logWeights[p]);
+        }
+        double sum = 0;
+        double sumSquares = 0;
+        for(int p=0; p<particles; p++){
+            logWeights[p] -= max;
+            double w = Math.exp(logWeights[p]);
+            sum += w;
+            sumSquares += w * w;
+        }
+
+        //effective sample size below half the particles, or the particle count has to change for the budget
+        int count = particles;
+        if(lastUpdateTime > budget){
+            count = Math.max(MIN_PARTICLES, particles / 2);
+        } else if(lastUpdateTime < budget / 4){
+            count = Math.min(maxParticles, particles * 2);
+        }
+        if(sum * sum / sumSquares < particles / 2.0 || count != particles){
+            resample(count, sum, deadline);
+        }
+        lastUpdateTime = (System.nanoTime() - start) / 1e9;
+    }
+
+    @Override
+    public int getNumberOfBids(){
+        return numberOfBids;
+    }
+
+    @Override
+    public double getUtility(long id){
+        return codec.utility(id, getScores());
+    }
+
+    /**
+     * @return posterior mean of the weight of the i-th issue
+     */
+    public double getWeight(int issue){
+        double[] w = normalizedWeights();
+        double weight = 0;
+        for(int p=0; p<particles; p++){
+            weight += w[p] * weights[issue][p];
+        }
+        return weight;
+    }
+
+    @Override
+    public double[] getScores(){
+        if(scores == null){
+            double[] w = normalizedWeights();
+            ValueIndex index = codec.getValueIndex();
+            double[] s = new double[index.size()];
+            for(int i=0; i<weights.length; i++){
+                double[] issueWeights = weights[i];
+                for(int c=index.offset(i); c<index.offset(i)+index.getNumberOfValues(i); c++){
+                    double[] values = evaluations[c];
+                    double score = 0;
+                    for(int p=0; p<particles; p++){
+                        score += w[p] * issueWeights[p] * values[p];
+                    }
+                    s[c] = score;
+                }
+            }
+            scores = s;
+        }
+        return scores;
+    }
+
+    private double[] normalizedWeights(){
+        double[] w = new double[particles];
+        double sum = 0;
+        for(int p=0; p<particles; p++){
+            w[p] = Math.exp(logWeights[p]);
+            sum += w[p];
+        }
+        for(int p=0; p<particles; p++){
+            w[p] /= sum;
+        }
+        return w;
+    }
+
+    //adds the log likelihood of the offer to every particle, false and nothing added if the deadline passed first
+    private boolean likelihood(int[] columns, long deadline){
+        if(particles <= SEQUENTIAL){
+            for(int from=0; from<particles; from+=CHUNK){
+                if(System.nanoTime() > deadline){
+                    return false;
+                }
+                likelihood(columns, from, Math.min(particles, from + CHUNK));
+            }
+        } else {
+            timedOut = false;
+            ForkJoinPool.commonPool().invoke(new Likelihood(columns, 0, particles, deadline));
+            if(timedOut){
+                return false;
+            }
+        }
+        for(int p=0; p<particles; p++){
+            logWeights[p] += likelihoods[p];
+        }
+        return true;
+    }
+
+    //log likelihood of the offer with these columns for the particles from..to
+    private void likelihood(int[] columns, int from, int to){
+        double[] u = new double[to - from];
+        for(int i=0; i<columns.length; i++){
+            double[] issueWeights = weights[i];
+            double[] values = evaluations[columns[i]];
+            for(int p=from; p<to; p++){
+                u[p - from] += issueWeights[p] * values[p];
+            }
+        }
+        for(int p=from; p<to; p++){
+            likelihoods[p] = BETA * (u[p - from] - 1);
+        }
+    }
+
+    //systematic resampling to count particles, sum is the total of exp(logWeights)
+    private void resample(int count, double sum, long deadline){
+        double[][] newWeights = new double[weights.length][count];
+        double[][] newEvaluations = new double[evaluations.length][count];
+        double step = sum / count;
+        double u = random.nextDouble() * step;
+        double cumulative = Math.exp(logWeights[0]);
+        int p = 0;
+        for(int q=0; q<count; q++){
+            while(cumulative < u && p < particles-1){
+                p++;
+                cumulative += Math.exp(logWeights[p]);
+            }
+            for(int i=0; i<weights.length; i++){
+                newWeights[i][q] = weights[i][p];
+            }
+            for(int c=0; c<evaluations.length; c++){
+                newEvaluations[c][q] = evaluations[c][p];
+            }
+            u += step;
+        }
+        weights = newWeights;
+        evaluations = newEvaluations;
+        particles = count;
+        logWeights = new double[count];
+        likelihoods = new double[count];
+        jitter(deadline);
+    }
+
+    //spreads out the copies a resample made, keeping weights on the simplex and utilities in [0,1]; particles
+    //not reached by the deadline stay exact copies, the next resample spreads them
+    private void jitter(long deadline){
+        for(int from=0; from<particles && System.nanoTime() < deadline; from+=CHUNK){
+            int to = Math.min(particles, from + CHUNK);
+            for(int p=from; p<to; p++){
+                double sum = 0;
+                for(int i=0; i<weights.length; i++){
+                    weights[i][p] *= Math.exp(JITTER * random.nextGaussian());
+                    sum += weights[i][p];
+                }
+                for(int i=0; i<weights.length; i++){
+                    weights[i][p] /= sum;
+                }
+            }
+            for(int c=0; c<evaluations.length; c++){
+                double[] values = evaluations[c];
+                for(int p=from; p<to; p++){
+                    values[p] = Math.min(1, Math.max(0, values[p] + JITTER * random.nextGaussian()));
+                }
+            }
+        }
+    }
+
+    //computes the likelihood of one offer for the particles from..to, unless the deadline has passed
+    @SuppressWarnings("serial")
+    private class Likelihood extends RecursiveAction {
+        private int[] columns;
+        private int from;
+        private int to;
+        private long deadline;
+
+        Likelihood(int[] columns, int from, int to, long deadline){
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute(){
+            if(timedOut || System.nanoTime() > deadline){
+                timedOut = true;
+                return;
+            }
+            if(to - from > CHUNK){
+                int mid = (from + to) >>> 1;
+                invokeAll(new Likelihood(columns, from, mid, deadline), new Likelihood(columns, mid, to, deadline));
+                return;
+            }
+            likelihood(columns, from, to);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package group12;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Value;
+
+import java.util.HashMap;
+
+/**
+ * Encodes a bid as the index of its value for every issue, and those indices as one mixed-radix long id
+ * (issue 0 is the least significant digit). Ids are equal exactly when the bids are, so the agents can hash,
+ * compare and index bids with a few divisions instead of going through the value maps of {@link Bid}.
+ *
+ * Bids are interned by id, so the Bid object for an id that was seen before can be looked up again.
+ */
+public class BidCodec {
+    private ValueIndex index;
+    private int[] sizes;
+    //place[i] is the weight of the digit of the i-th issue
+    private long[] place;
+    private long numberOfBids;
+
+    //open addressing table id -> canonical bid, a free slot has a null bid
+    private long[] ids;
+    private Bid[] bids;
+    private int count;
+
+    public BidCodec(ValueIndex index){
+        this.index = index;
+        int issues = index.getIssueCount();
+        sizes = new int[issues];
+        place = new long[issues];
+
+        long p = 1;
+        for(int i=0; i<issues; i++){
+            sizes[i] = index.getNumberOfValues(i);
+            place[i] = p;
+            try{
+                p = Math.multiplyExact(p, sizes[i]);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Outcome space too large for a long id", e);
+            }
+        }
+        numberOfBids = p;
+
+        ids = new long[64];
+        bids = new Bid[64];
+    }
+
+    public ValueIndex getValueIndex(){
+        return index;
+    }
+
+    public int getIssueCount(){
+        return sizes.length;
+    }
+
+    /**
+     * @return number of possible bids, every id is in [0, numberOfBids)
+     */
+    public long getNumberOfBids(){
+        return numberOfBids;
+    }
+
+    public long id(Bid bid){
+        long id = 0;
+        for(int i=0; i<sizes.length; i++){
+            id += place[i] * index.indexOf(bid, i);
+        }
+        return id;
+    }
+
+    public long id(int[] codes){
+        long id = 0;
+        for(int i=0; i<sizes.length; i++){
+            id += place[i] * codes[i];
+        }
+        return id;
+    }
+
+    /**
+     * @return index of the value the bid with this id has for the i-th issue
+     */
+    public int code(long id, int issue){
+        return (int) ((id / place[issue]) % sizes[issue]);
+    }
+
+    public int[] decode(long id){
+        int[] codes = new int[sizes.length];
+        for(int i=0; i<sizes.length; i++){
+            codes[i] = (int) (id % sizes[i]);
+            id /= sizes[i];
+        }
+        return codes;
+    }
+
+    /**
+     * @return column in the {@link ValueIndex} of the value the bid with this id has for the i-th issue
+     */
+    public int column(long id, int issue){
+        return index.offset(issue) + code(id, issue);
+    }
+
+    public double utility(long id, double[] utilities){
+        double sum = 0.0;
+        for(int i=0; i<sizes.length; i++){
+            sum += utilities[index.offset(i) + (int) (id % sizes[i])];
+            id /= sizes[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Registers the bid under its id, an equal bid that was interned before stays the canonical one.
+     *
+     * @return the id of the bid
+     */
+    public long intern(Bid bid){
+        long id = id(bid);
+        int slot = slot(id);
+        if(bids[slot] == null){
+            ids[slot] = id;
+            bids[slot] = bid;
+            count++;
+            if(2 * count > bids.length){
+                grow();
+            }
+        }
+        return id;
+    }
+
+    /**
+     * @return the canonical bid with this id, or null if no such bid was interned
+     */
+    public Bid getBid(long id){
+        return bids[slot(id)];
+    }
+
+    /**
+     * @return the canonical bid with this id, a new one is made and interned if there is none yet
+     */
+    public Bid getBid(long id, Domain domain){
+        Bid bid = getBid(id);
+        if(bid == null){
+            bid = toBid(id, domain);
+            intern(bid);
+        }
+        return bid;
+    }
+
+    /**
+     * @return a new bid with this id, not interned
+     */
+    public Bid toBid(long id, Domain domain){
+        return toBid(decode(id), domain);
+    }
+
+    /**
+     * @return a new bid with these value indices, not interned
+     */
+    public Bid toBid(int[] codes, Domain domain){
+        HashMap<Integer, Value> values = new HashMap<>();
+        for(int i=0; i<sizes.length; i++){
+            IssueDiscrete issueDiscrete = (IssueDiscrete) index.getIssues().get(i);
+            values.put(issueDiscrete.getNumber(), issueDiscrete.getValue(codes[i]));
+        }
+        return new Bid(domain, values);
+    }
+
+    private int slot(long id){
+        int mask = bids.length - 1;
+        int slot = (int) (mix(id) & mask);
+        while(bids[slot] != null && ids[slot] != id){
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow(){
+        long[] oldIds = ids;
+        Bid[] oldBids = bids;
+        ids = new long[2 * oldIds.length];
+        bids = new Bid[2 * oldBids.length];
+        for(int k=0; k<oldBids.length; k++){
+            if(oldBids[k] != null){
+                int slot = slot(oldIds[k]);
+                ids[slot] = oldIds[k];
+                bids[slot] = oldBids[k];
+            }
+        }
+    }
+
+    //ids of neighbouring bids differ only in the low bits, spread them over the table
+    private static long mix(long id){
+        id *= 0x9E3779B97F4A7C15L;
+        return id ^ (id >>> 32);
+    }
+}
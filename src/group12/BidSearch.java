@@ -0,0 +1,226 @@
+package group12;
+
+import java.util.Arrays;
+
+/**
+ * Finds the bids with the highest estimated opponent utility among the ones with an own utility of at least
+ * a target, without going through the outcome space. Both utilities are additive in per-value scores indexed
+ * by {@link ValueIndex} column.
+ *
+ * The search is a depth first branch and bound that picks one value per issue. Issues are taken in order of
+ * how much the opponent scores of their values differ, and the values of an issue from the highest opponent
+ * score down, so the first complete bids are already good ones. A partial bid is cut off when even the best
+ * values for the remaining issues can't beat the k-th best bid found so far, or can't reach the own target.
+ *
+ * The search stops at the time limit and then returns the best bids found until then, isComplete() tells
+ * whether the result is exact.
+ */
+public class BidSearch {
+    //the clock is read once every this many nodes
+    private static final int CHECK_INTERVAL = 1024;
+    //rounding slack for the own target bound, the exact sum is checked on complete bids
+    private static final double EPSILON = 1e-12;
+
+    private BidCodec codec;
+    private long[] place;
+
+    //per depth: issue, value codes in decreasing order of opponent score, and their scores
+    private int[] issues;
+    private int[][] codes;
+    private double[][] own;
+    private double[][] opponent;
+    //sum over the depths from d on of the highest score of every issue
+    private double[] maxOwnRest;
+    private double[] maxOpponentRest;
+
+    private double target;
+    //min-heap on opponent utility of the best bids found
+    private long[] heapIds;
+    private double[] heapUtilities;
+    private int heapSize;
+
+    private long deadline;
+    private long nodes;
+    private boolean complete;
+
+    public BidSearch(BidCodec codec){
+        this.codec = codec;
+        int n = codec.getIssueCount();
+        ValueIndex index = codec.getValueIndex();
+        place = new long[n];
+        long p = 1;
+        for(int i=0; i<n; i++){
+            place[i] = p;
+            p *= index.getNumberOfValues(i);
+        }
+    }
+
+    /**
+     * @return id of the bid with the highest opponent utility among the ones with an own utility of at least
+     * target, -1 if none was found
+     */
+    public long best(double[] ownScores, double[] opponentScores, double target, double seconds){
+        long[] ids = topK(ownScores, opponentScores, target, 1, seconds);
+        return ids.length == 0 ? -1 : ids[0];
+    }
+
+    /**
+     * @return ids of up to k bids with an own utility of at least target, highest opponent utility first
+     */
+    public long[] topK(double[] ownScores, double[] opponentScores, double target, int k, double seconds){
+        prepare(ownScores, opponentScores);
+        this.target = target;
+        heapIds = new long[Math.max(k, 0)];
+        heapUtilities = new double[heapIds.length];
+        heapSize = 0;
+        nodes = 0;
+        complete = true;
+        deadline = Double.isInfinite(seconds) ? Long.MAX_VALUE : System.nanoTime() + (long) (seconds * 1e9);
+
+        if(heapIds.length > 0 && maxOwnRest[0] >= target - EPSILON){
+            search(0, 0, 0, 0);
+        }
+
+        //sorting the heap by decreasing utility
+        Integer[] order = new Integer[heapSize];
+        for(int h=0; h<heapSize; h++){
+            order[h] = h;
+        }
+        Arrays.sort(order, (a,b) -> Double.compare(heapUtilities[b], heapUtilities[a]));
+        long[] ids = new long[heapSize];
+        for(int h=0; h<heapSize; h++){
+            ids[h] = heapIds[order[h]];
+        }
+        return ids;
+    }
+
+    /**
+     * @return false if the last search ran out of time, then its bids are the best ones found until then
+     */
+    public boolean isComplete(){
+        return complete;
+    }
+
+    /**
+     * @return number of partial bids the last search visited
+     */
+    public long getNodes(){
+        return nodes;
+    }
+
+    private void prepare(double[] ownScores, double[] opponentScores){
+        ValueIndex index = codec.getValueIndex();
+        int n = index.getIssueCount();
+
+        //issues where the opponent cares most about the value first
+        Integer[] bySpread = new Integer[n];
+        double[] spread = new double[n];
+        for(int i=0; i<n; i++){
+            bySpread[i] = i;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for(int v=0; v<index.getNumberOfValues(i); v++){
+                min = Math.min(min, opponentScores[index.offset(i) + v]);
+                max = Math.max(max, opponentScores[index.offset(i) + v]);
+            }
+            spread[i] = max - min;
+        }
+        Arrays.sort(bySpread, (a,b) -> Double.compare(spread[b], spread[a]));
+
+        issues = new int[n];
+        codes = new int[n][];
+        own = new double[n][];
+        opponent = new double[n][];
+        maxOwnRest = new double[n+1];
+        maxOpponentRest = new double[n+1];
+        for(int d=0; d<n; d++){
+            int i = bySpread[d];
+            int offset = index.offset(i);
+            int values = index.getNumberOfValues(i);
+            Integer[] order = new Integer[values];
+            for(int v=0; v<values; v++){
+                order[v] = v;
+            }
+            Arrays.sort(order, (a,b) -> Double.compare(opponentScores[offset + b], opponentScores[offset + a]));
+
+            issues[d] = i;
+            codes[d] = new int[values];
+            own[d] = new double[values];
+            opponent[d] = new double[values];
+            for(int j=0; j<values; j++){
+                codes[d][j] = order[j];
+                own[d][j] = ownScores[offset + order[j]];
+                opponent[d][j] = opponentScores[offset + order[j]];
+            }
+        }
+        for(int d=n-1; d>=0; d--){
+            double maxOwn = Double.NEGATIVE_INFINITY;
+            for(double u : own[d]){
+                maxOwn = Math.max(maxOwn, u);
+            }
+            maxOwnRest[d] = maxOwnRest[d+1] + maxOwn;
+            //values are sorted, the first one has the highest opponent score
+            maxOpponentRest[d] = maxOpponentRest[d+1] + opponent[d][0];
+        }
+    }
+
+    //extends a bid with values for the issues at depth d and on, returns false once the time is up
+    private boolean search(int d, long id, double ownSoFar, double opponentSoFar){
+        if(++nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline){
+            complete = false;
+            return false;
+        }
+        if(d == issues.length){
+            if(ownSoFar >= target){
+                offer(id, opponentSoFar);
+            }
+            return true;
+        }
+        for(int j=0; j<codes[d].length; j++){
+            double opponentUtility = opponentSoFar + opponent[d][j];
+            if(heapSize == heapIds.length && opponentUtility + maxOpponentRest[d+1] <= heapUtilities[0]){
+                //the remaining values of this issue score even lower
+                break;
+            }
+            double ownUtility = ownSoFar + own[d][j];
+            if(ownUtility + maxOwnRest[d+1] < target - EPSILON){
+                continue;
+            }
+            if(!search(d+1, id + place[issues[d]] * codes[d][j], ownUtility, opponentUtility)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void offer(long id, double utility){
+        if(heapSize < heapIds.length){
+            //sift up
+            int h = heapSize++;
+            while(h > 0 && heapUtilities[(h-1)/2] > utility){
+                heapIds[h] = heapIds[(h-1)/2];
+                heapUtilities[h] = heapUtilities[(h-1)/2];
+                h = (h-1)/2;
+            }
+            heapIds[h] = id;
+            heapUtilities[h] = utility;
+        } else if(utility > heapUtilities[0]){
+            //replace the worst and sift down
+            int h = 0;
+            while(2*h+1 < heapSize){
+                int child = 2*h+1;
+                if(child+1 < heapSize && heapUtilities[child+1] < heapUtilities[child]){
+                    child++;
+                }
+                if(heapUtilities[child] >= utility){
+                    break;
+                }
+                heapIds[h] = heapIds[child];
+                heapUtilities[h] = heapUtilities[child];
+                h = child;
+            }
+            heapIds[h] = id;
+            heapUtilities[h] = utility;
+        }
+    }
+}
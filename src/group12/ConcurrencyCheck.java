@@ -0,0 +1,138 @@
+package group12;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.Deadline;
+import genius.core.DeadlineType;
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.EndNegotiation;
+import genius.core.actions.Offer;
+import genius.core.parties.AbstractNegotiationParty;
+import genius.core.parties.NegotiationInfo;
+import genius.core.timeline.DiscreteTimeline;
+import genius.core.uncertainty.ExperimentalUserModel;
+import genius.core.uncertainty.User;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.UncertainAdditiveUtilitySpace;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Stress check for running many sessions in one JVM: plays the same seeded bilateral sessions once one
+ * after the other and once on a thread pool, and checks every session ends the same way both times.
+ *
+ * Only agents whose play depends on nothing but the seed take part, so a difference means sessions share
+ * state they shouldn't. The sessions have a round deadline and nothing is timed (-Dgroup12.unlimited=true),
+ * so the estimator-based agents solve and search to the end every time. Run from the project directory,
+ * optionally with the number of sessions, threads, domain and two profiles as arguments.
+ */
+public class ConcurrencyCheck {
+    private static final int ROUNDS = 100;
+    //bids in every generated ranking
+    private static final int RANKED = 20;
+    private static final List<Class<? extends AbstractNegotiationParty>> AGENTS =
+            Arrays.asList(MyAgent.class, MyAgentLab3.class, Lab3.class, Lab4.class, LP.class, LP2.class,
+                    ExampleAgent.class, TestAgent.class);
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 2 * Runtime.getRuntime().availableProcessors();
+        String domain = args.length > 2 ? args[2] : "etc/templates/partydomain/party_domain.xml";
+        String[] profiles = args.length > 4 ? new String[]{ args[3], args[4] }
+                : new String[]{ "etc/templates/partydomain/party1_utility.xml", "etc/templates/partydomain/party2_utility.xml" };
+        System.setProperty("group12.unlimited", "true");
+
+        //the agents talk a lot, only the results are of interest
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b){
+            }
+        }));
+        String[] serial = new String[sessions];
+        String[] parallel = new String[sessions];
+        long start = System.nanoTime();
+        for(int s=0; s<sessions; s++){
+            serial[s] = run(s, domain, profiles);
+        }
+        double serialTime = (System.nanoTime() - start) / 1e9;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        start = System.nanoTime();
+        List<Future<String>> results = new ArrayList<>();
+        for(int s=0; s<sessions; s++){
+            int session = s;
+            results.add(executor.submit(() -> run(session, domain, profiles)));
+        }
+        for(int s=0; s<sessions; s++){
+            parallel[s] = results.get(s).get();
+        }
+        double parallelTime = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        System.setOut(out);
+
+        int mismatches = 0;
+        for(int s=0; s<sessions; s++){
+            if(!serial[s].equals(parallel[s])){
+                mismatches++;
+                System.out.println("Session " + s + " serial: " + serial[s] + " parallel: " + parallel[s]);
+            }
+        }
+        System.out.println(sessions + " sessions, serial " + sessions / serialTime + " sessions/s, "
+                + threads + " threads " + sessions / parallelTime + " sessions/s, " + mismatches + " mismatches");
+        if(mismatches > 0){
+            System.exit(1);
+        }
+    }
+
+    //plays one session of stacked alternating offers, returns how it ended
+    private static String run(int session, String domainFile, String[] profileFiles) throws Exception {
+        Domain domain = new DomainImpl(domainFile);
+        DiscreteTimeline timeline = new DiscreteTimeline(ROUNDS);
+        AbstractNegotiationParty[] parties = new AbstractNegotiationParty[2];
+        AgentID[] ids = new AgentID[2];
+        for(int p=0; p<2; p++){
+            long seed = 31L * session + p;
+            AdditiveUtilitySpace real = new AdditiveUtilitySpace(domain, profileFiles[p]);
+            UncertainAdditiveUtilitySpace uncertain = new UncertainAdditiveUtilitySpace(real, RANKED, 0, 0.0, true, true);
+            ExperimentalUserModel userModel = new ExperimentalUserModel(TournamentRunner.ranking(domain, real, RANKED, new Random(seed)),
+                    uncertain);
+            ids[p] = new AgentID("Party" + session + "-" + p);
+            parties[p] = AGENTS.get((session + p) % AGENTS.size()).getDeclaredConstructor().newInstance();
+            parties[p].init(new NegotiationInfo(real, userModel, new User(uncertain), new Deadline(ROUNDS, DeadlineType.ROUND),
+                    timeline, seed, ids[p], null));
+        }
+
+        List<Class<? extends Action>> possibleActions = Arrays.asList(Accept.class, Offer.class, EndNegotiation.class);
+        Bid agreement = null;
+        String ending = "deadline";
+        while(!timeline.isDeadlineReached() && agreement == null && ending.equals("deadline")){
+            for(int p=0; p<2 && agreement == null; p++){
+                Action action = parties[p].chooseAction(possibleActions);
+                parties[1-p].receiveMessage(ids[p], action);
+                if(action instanceof Accept){
+                    agreement = ((Accept) action).getBid();
+                } else if(action instanceof EndNegotiation){
+                    ending = "ended by " + p;
+                    break;
+                }
+            }
+            timeline.increment();
+        }
+        for(AbstractNegotiationParty party : parties){
+            party.negotiationEnded(agreement);
+        }
+        return agreement != null ? "agreement " + agreement + " in round " + timeline.getRound() : ending;
+    }
+}
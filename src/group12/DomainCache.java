@@ -0,0 +1,81 @@
+package group12;
+
+import genius.core.Domain;
+import genius.core.utility.AdditiveUtilitySpace;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What the agents derive from a domain or profile and never change, shared between sessions running in the
+ * same JVM so a tournament builds it once instead of once per session and thread.
+ *
+ * Only immutable objects are handed out: a {@link ValueIndex} per domain name, and a {@link UtilityTable}
+ * per domain and set of value utilities, so two profiles only share a table when they agree on every value.
+ * A {@link BidCodec} interns bids and is not shared, every session makes its own over the shared index.
+ * Entries are never dropped, there is one per domain and profile a tournament uses.
+ */
+public class DomainCache {
+    //largest outcome space that gets a full table, a table takes about 20 bytes per bid
+    private static final long MAX_TABLE = 1L << 21;
+
+    private static final ConcurrentHashMap<String, ValueIndex> indices = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<TableKey, UtilityTable> tables = new ConcurrentHashMap<>();
+
+    private DomainCache(){
+    }
+
+    /**
+     * @return value index of the domain, the same object for every domain with this name
+     */
+    public static ValueIndex index(Domain domain){
+        if(domain.getName() == null){
+            return new ValueIndex(domain.getIssues());
+        }
+        return indices.computeIfAbsent(domain.getName(), name -> new ValueIndex(domain.getIssues()));
+    }
+
+    /**
+     * @return table of the real utilities of an additive profile, shared with every profile of the same domain
+     * with the same value utilities. Above MAX_TABLE outcomes the table is {@link UtilityTable#sampled} and not shared.
+     */
+    public static UtilityTable table(AdditiveUtilitySpace utilitySpace){
+        Domain domain = utilitySpace.getDomain();
+        ValueIndex index = index(domain);
+        double[] valueUtilities = UtilityTable.valueUtilities(index, utilitySpace);
+        BidCodec codec = new BidCodec(index);
+        if(codec.getNumberOfBids() > MAX_TABLE){
+            return UtilityTable.sampled(codec, valueUtilities);
+        }
+        if(domain.getName() == null){
+            return new UtilityTable(codec, valueUtilities);
+        }
+        //the table's codec is never used to intern, so it is safe to share
+        return tables.computeIfAbsent(new TableKey(domain.getName(), valueUtilities),
+                key -> new UtilityTable(codec, key.valueUtilities));
+    }
+
+    private static final class TableKey {
+        private final String domain;
+        private final double[] valueUtilities;
+
+        TableKey(String domain, double[] valueUtilities){
+            this.domain = domain;
+            this.valueUtilities = valueUtilities;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(!(o instanceof TableKey)){
+                return false;
+            }
+            TableKey other = (TableKey) o;
+            return domain.equals(other.domain) && Arrays.equals(valueUtilities, other.valueUtilities);
+        }
+
+        @Override
+        public int hashCode(){
+            return 31 * domain.hashCode() + Arrays.hashCode(valueUtilities);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package group12;
+
+/**
+ * How many bids to elicit before estimating the preferences again.
+ *
+ * Every re-estimation is a full solve, so eliciting bids one at a time costs a solve per bid. The batch size
+ * is the smallest one that keeps the solves of a turn within the turn: with s seconds per solve, b bids still
+ * to elicit this turn and T seconds left of the turn, that is b * s / T bids per solve. Solve time and bids per
+ * turn are running averages, the turn time comes from the round latency, so batches grow as a turn runs out.
+ */
+public class ElicitationBatch {
+    private static final int MAX_BATCH = 32;
+    //weight of the newest measurement in the averages
+    private static final double ALPHA = 0.2;
+
+    private SolveBudget budget;
+    private double solveTime;
+    private double elicitedPerTurn = 1;
+
+    public ElicitationBatch(SolveBudget budget){
+        this.budget = budget;
+    }
+
+    /**
+     * Records the seconds one re-estimation took.
+     */
+    public void solved(double seconds){
+        solveTime = solveTime == 0 ? seconds : (1-ALPHA) * solveTime + ALPHA * seconds;
+    }
+
+    /**
+     * Records the number of bids elicited in a turn.
+     */
+    public void elicited(int count){
+        elicitedPerTurn = (1-ALPHA) * elicitedPerTurn + ALPHA * count;
+    }
+
+    public double getSolveTime(){
+        return solveTime;
+    }
+
+    /**
+     * @param elicited bids elicited so far this turn
+     * @return number of bids to elicit before the next re-estimation
+     */
+    public int size(int elicited){
+        double seconds = budget.getTurnTimeLeft();
+        if(solveTime == 0 || Double.isInfinite(seconds)){
+            return 1;
+        }
+        double size = Math.ceil(Math.max(1, elicitedPerTurn - elicited) * solveTime / seconds);
+        return (int) Math.max(1, Math.min(MAX_BATCH, size));
+    }
+}
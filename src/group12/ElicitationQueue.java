@@ -0,0 +1,194 @@
+package group12;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The bids that are not known yet, from the highest estimated utility down, produced one at a time.
+ *
+ * Nothing is stored per bid. The values of every issue are sorted by estimated utility and the bids are
+ * walked best first: a bid is a position in each of those lists, the first bid takes the best value of
+ * every issue, and a bid leads to the bids one position further in its last moved issue or any issue after
+ * it. Every bid is reached from exactly one other bid and never scores higher than it, so a heap of the
+ * bids reached so far gives them in order. Known bids are skipped when they come up.
+ *
+ * Taking the next bid costs a heap operation per issue, so a turn costs in proportion to the bids looked
+ * at, not to the outcome space. A new estimate re-sorts only the issues whose values changed and starts the
+ * walk over.
+ */
+public class ElicitationQueue {
+    private BidCodec codec;
+    private OutcomeView outcomes;
+
+    private double[] utilities;
+    //per issue the value codes in decreasing order of utility, and those utilities
+    private int[][] codes;
+    private double[][] sorted;
+
+    private PriorityQueue<Node> heap;
+    private int polled;
+
+    public ElicitationQueue(BidCodec codec, OutcomeView outcomes){
+        this.codec = codec;
+        this.outcomes = outcomes;
+        codes = new int[codec.getIssueCount()][];
+        sorted = new double[codec.getIssueCount()][];
+        heap = new PriorityQueue<>((a,b) -> Double.compare(b.utility, a.utility));
+    }
+
+    /**
+     * Takes a new estimate of the value utilities, by {@link ValueIndex} column. Nothing changes if the
+     * estimate is the same as before.
+     */
+    public void update(double[] utilities){
+        if(this.utilities != null && Arrays.equals(this.utilities, utilities)){
+            return;
+        }
+        ValueIndex index = codec.getValueIndex();
+        for(int i=0; i<codes.length; i++){
+            int offset = index.offset(i);
+            int values = index.getNumberOfValues(i);
+            if(this.utilities != null && sameValues(this.utilities, utilities, offset, values)){
+                continue;
+            }
+            Integer[] order = new Integer[values];
+            for(int v=0; v<values; v++){
+                order[v] = v;
+            }
+            Arrays.sort(order, (a,b) -> Double.compare(utilities[offset + b], utilities[offset + a]));
+            codes[i] = new int[values];
+            sorted[i] = new double[values];
+            for(int j=0; j<values; j++){
+                codes[i][j] = order[j];
+                sorted[i][j] = utilities[offset + order[j]];
+            }
+        }
+        this.utilities = utilities.clone();
+
+        heap.clear();
+        polled = 0;
+        int[] positions = new int[codes.length];
+        double utility = 0;
+        for(int i=0; i<codes.length; i++){
+            utility += sorted[i][0];
+        }
+        heap.add(new Node(positions, 0, utility, id(positions)));
+    }
+
+    /**
+     * @return id of the unknown bid with the highest estimated utility that was not polled, -1 if there is none
+     */
+    public long peek(){
+        Node node = top();
+        return node == null ? -1 : node.id;
+    }
+
+    /**
+     * @return estimated utility of the bid peek() gives, 0 if there is none
+     */
+    public double peekUtility(){
+        Node node = top();
+        return node == null ? 0 : node.utility;
+    }
+
+    /**
+     * Removes the bid peek() gives.
+     *
+     * @return its id, -1 if there is none
+     */
+    public long poll(){
+        Node node = top();
+        if(node == null){
+            return -1;
+        }
+        expand(heap.poll());
+        polled++;
+        return node.id;
+    }
+
+    /**
+     * @return ids of up to count unknown bids from the highest estimated utility down, they stay in the queue
+     */
+    public long[] top(int count){
+        List<Node> taken = new ArrayList<>();
+        while(taken.size() < count && top() != null){
+            Node node = heap.poll();
+            expand(node);
+            taken.add(node);
+        }
+        long[] ids = new long[taken.size()];
+        for(int k=0; k<ids.length; k++){
+            ids[k] = taken.get(k).id;
+        }
+        heap.addAll(taken);
+        return ids;
+    }
+
+    /**
+     * @return number of unknown bids polled since the last new estimate
+     */
+    public int getPolled(){
+        return polled;
+    }
+
+    //best bid in the heap, known ones on top are dropped first
+    private Node top(){
+        while(!heap.isEmpty() && outcomes.isKnown(heap.peek().id)){
+            expand(heap.poll());
+        }
+        return heap.peek();
+    }
+
+    //adds the bids one position further in the last moved issue or any issue after it
+    private void expand(Node node){
+        if(node.expanded){
+            return;
+        }
+        node.expanded = true;
+        for(int i=node.last; i<codes.length; i++){
+            int p = node.positions[i];
+            if(p + 1 < codes[i].length){
+                int[] positions = node.positions.clone();
+                positions[i] = p + 1;
+                double utility = node.utility - sorted[i][p] + sorted[i][p+1];
+                heap.add(new Node(positions, i, utility, id(positions)));
+            }
+        }
+    }
+
+    private static boolean sameValues(double[] a, double[] b, int offset, int values){
+        for(int c=offset; c<offset+values; c++){
+            if(a[c] != b[c]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long id(int[] positions){
+        int[] values = new int[positions.length];
+        for(int i=0; i<positions.length; i++){
+            values[i] = codes[i][positions[i]];
+        }
+        return codec.id(values);
+    }
+
+    private static class Node {
+        private int[] positions;
+        //issue that was moved last, only it and the issues after it move further
+        private int last;
+        private double utility;
+        private long id;
+        //whether the bids after it were added already
+        private boolean expanded;
+
+        Node(int[] positions, int last, double utility, long id){
+            this.positions = positions;
+            this.last = last;
+            this.utility = utility;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package group12;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.utility.AdditiveUtilitySpace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times the preference estimator backends against each other the way the agents use them: one solve for the
+ * initial ranking, then one after every elicited bid, with the bids put where the profile ranks them.
+ *
+ * Both backends replay the same bids. Every replay runs twice and the second run is reported, so the first
+ * one warms up the JIT. Gurobi is skipped when it can't be loaded or licensed. Run from the project directory,
+ * optionally with the size of the initial ranking, the number of elicitations and pairs of domain and profile
+ * as arguments.
+ */
+public class EstimatorBenchmark {
+    private static final String[] DOMAINS = {
+            "etc/templates/partydomain/party_domain.xml", "etc/templates/partydomain/party1_utility.xml",
+            "etc/templates/anac/y2011/Laptop/laptop_domain.xml", "etc/templates/anac/y2011/Laptop/laptop_buyer_utility.xml",
+            "etc/templates/ItexvsCypressDomain/ItexvsCypress_domain.xml", "etc/templates/ItexvsCypressDomain/ItexvsCypress_CypressAReserve00.xml"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int ranked = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int elicited = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        String[] domains = args.length > 3 ? Arrays.copyOfRange(args, 2, args.length) : DOMAINS;
+
+        for(int d=0; d+1<domains.length; d+=2){
+            Domain domain = new DomainImpl(domains[d]);
+            AdditiveUtilitySpace utilitySpace = new AdditiveUtilitySpace(domain, domains[d+1]);
+            ValueIndex index = new ValueIndex(domain.getIssues());
+            for(String solver : new String[]{ "java", "gurobi" }){
+                double[] times = null;
+                try {
+                    for(int run=0; run<2; run++){
+                        PreferenceEstimator estimator = solver.equals("gurobi") ? new GurobiEstimator(index) : new SimplexEstimator(index);
+                        times = replay(estimator, domain, utilitySpace, ranked, elicited);
+                        estimator.dispose();
+                    }
+                } catch (Exception | LinkageError e) {
+                    System.out.println(domains[d+1] + " " + solver + ": not available, " + e);
+                    continue;
+                }
+                double total = 0;
+                double max = 0;
+                for(int e=1; e<times.length; e++){
+                    total += times[e];
+                    max = Math.max(max, times[e]);
+                }
+                System.out.printf("%s %s: first solve %.3f ms, %d elicitations %.3f ms mean %.3f ms max%n", domains[d+1],
+                        solver, 1e3 * times[0], times.length - 1, 1e3 * total / Math.max(1, times.length - 1), 1e3 * max);
+            }
+        }
+    }
+
+    //seconds per solve, the first for the initial ranking and then one per elicited bid
+    private static double[] replay(PreferenceEstimator estimator, Domain domain, AdditiveUtilitySpace utilitySpace,
+                                   int ranked, int elicited){
+        Random random = new Random(0);
+        long outcomes = domain.getNumberOfPossibleBids();
+        Comparator<Bid> byUtility = Comparator.comparingDouble(utilitySpace::getUtility);
+        HashSet<Bid> seen = new HashSet<>();
+        List<Bid> ranking = new ArrayList<>();
+        while(seen.size() < Math.min(ranked, outcomes / 2)){
+            Bid bid = domain.getRandomBid(random);
+            if(seen.add(bid)){
+                ranking.add(bid);
+            }
+        }
+        ranking.sort(byUtility);
+
+        double[] times = new double[1 + (int) Math.min(elicited, outcomes - seen.size())];
+        times[0] = solve(estimator, ranking);
+        for(int e=1; e<times.length; e++){
+            Bid bid = domain.getRandomBid(random);
+            while(!seen.add(bid)){
+                bid = domain.getRandomBid(random);
+            }
+            int position = Collections.binarySearch(ranking, bid, byUtility);
+            ranking.add(position < 0 ? -1 - position : position, bid);
+            times[e] = solve(estimator, ranking);
+        }
+        return times;
+    }
+
+    private static double solve(PreferenceEstimator estimator, List<Bid> ranking){
+        long start = System.nanoTime();
+        estimator.update(ranking);
+        estimator.optimize();
+        return (System.nanoTime() - start) / 1e9;
+    }
+}
@@ -11,11 +11,9 @@ import genius.core.actions.Action;
 import genius.core.actions.EndNegotiation;
 import genius.core.actions.Offer;
 import genius.core.bidding.BidDetails;
-import genius.core.boaframework.OutcomeSpace;
 import genius.core.boaframework.SortedOutcomeSpace;
 import genius.core.issue.Issue;
 import genius.core.issue.IssueDiscrete;
-import genius.core.issue.Value;
 import genius.core.issue.ValueDiscrete;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
@@ -24,7 +22,6 @@ import genius.core.utility.AbstractUtilitySpace;
 import genius.core.utility.AdditiveUtilitySpace;
 import genius.core.utility.EvaluatorDiscrete;
 import genius.core.utility.UncertainAdditiveUtilitySpace;
-import gurobi.*;
 
 /**
  * ExampleAgent returns the bid that maximizes its own utility for half of the negotiation session.
@@ -35,20 +32,43 @@ public class ExampleAgent extends AbstractNegotiationParty {
     private final String description = "Example Agent";
 
     private Bid lastReceivedOffer; // offer on the table
+    private long lastReceivedId;
     private Bid myLastOffer;
     Domain domain;
     double reservationValue;
     double aspirationValue = 0.5;
-    Set<Bid> unknownBids;
-    private static double MINIMUM_TARGET = 0.8;
-    private static double TARGET_UTILITY;
-    private static double THRESHOLD;
+    //all bids, made from their id when needed, with the ones in the ranking marked as known
+    OutcomeView outcomes;
+    private static final double MINIMUM_TARGET = 0.8;
+    private double TARGET_UTILITY;
+    private double THRESHOLD;
     private Bid lastOffer;
-    int[][] table;
-    HashMap<String,Integer> indicies;
-    int numberOfBids;
-    private HashMap<String, GRBVar> vars;
-    private HashMap<String, Double> vals;
+    BidCodec codec;
+    private MultiOpponentModel opponentModel;
+    //estimates and opponent models of earlier sessions
+    private SessionMemory memory;
+    private PreferenceEstimator estimator;
+    private SolveBudget budget;
+    //set when re-estimation runs in the background (-Dgroup12.async=true)
+    private AsyncEstimator asyncEstimator;
+    private double[] utilities;
+    //ranked bid with the highest estimated utility, kept up to date per elicited bid, found by a scan if not known
+    private long bestRanked = -1;
+    private boolean bestKnown;
+    //async mode: the solve bestRanked was taken from, and every bid elicited this session in order
+    private AsyncEstimator.Snapshot bestSnapshot;
+    private ArrayList<Long> elicitedIds = new ArrayList<>();
+    private int initiallyRanked;
+    //unknown bids by estimated utility
+    private ElicitationQueue queue;
+    //set when bids are elicited in batches with one re-estimation per batch (-Dgroup12.batch=true)
+    private ElicitationBatch batch;
+    //set when candidates are picked by value of information (-Dgroup12.voi=true)
+    private VoiScorer voi;
+    //unknown bids from the top of the queue that are scored for value of information
+    private static final int VOI_CANDIDATES = 1024;
+    //in seconds, the most value of information scoring may take per turn
+    private static final double VOI_TIME = 0.05;
     private AdditiveUtilitySpace additiveUtilitySpace;
     private int mseCounter =0;
     private double mseSum = 0;
@@ -65,16 +85,24 @@ public class ExampleAgent extends AbstractNegotiationParty {
         reservationValue = info.getUtilitySpace().getReservationValue();
 
         AbstractUtilitySpace utilitySpace = info.getUtilitySpace();
-        OutcomeSpace outcomeSpace = new OutcomeSpace(utilitySpace);
+        codec = new BidCodec(DomainCache.index(utilitySpace.getDomain()));
+        memory = new SessionMemory(getData(), codec, utilitySpace.getDomain().getName(), utilitySpace.getFileName());
 
-        //Gets all bids without a utility
-        unknownBids = new HashSet<>(outcomeSpace.getAllBidsWithoutUtilities());
-
-        //Removes all bids that are in the preference order from unknown bids
+        if(Boolean.getBoolean("group12.voi")){
+            voi = new VoiScorer(codec);
+        }
+        //Marks all bids that are in the preference order as known
+        outcomes = new OutcomeView(codec, utilitySpace.getDomain());
         for (Bid bidRank : userModel.getBidRanking().getBidOrder())
         {
-            unknownBids.remove(bidRank);
+            outcomes.setKnown(bidRank);
+            if (voi != null)
+            {
+                voi.add(codec.id(bidRank));
+            }
         }
+        initiallyRanked = userModel.getBidRanking().getBidOrder().size();
+        queue = new ElicitationQueue(codec, outcomes);
 
         //Use this for evaluation as it provides real utility
         ExperimentalUserModel e = (ExperimentalUserModel) userModel ;
@@ -83,201 +111,145 @@ public class ExampleAgent extends AbstractNegotiationParty {
         //UtilitySpace: domain and preference profile
         additiveUtilitySpace = (AdditiveUtilitySpace) utilitySpace;
 
-        //List of issues
-        List<Issue> issues = additiveUtilitySpace.getDomain().getIssues();
-        table = new int[issues.size()][];
-        indicies = new HashMap<>();
-        numberOfBids = 0;
+        opponentModel = new MultiOpponentModel(codec);
 
-
-        for (Issue issue : issues) {
-            int issueNumber = issue.getNumber();
-            IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
-
-            int counter = 0;
-            for (ValueDiscrete valueDiscrete : issueDiscrete.getValues()) {
-                String s = issueNumber + valueDiscrete.getValue();
-                indicies.put(s,counter);
-                counter++;
-            }
-
-            int issueIndex = issueNumber-1;
-            table[issueIndex] = new int[issueDiscrete.getValues().size()];
+        budget = new SolveBudget(getTimeLine());
+        if(Boolean.getBoolean("group12.batch")){
+            batch = new ElicitationBatch(budget);
         }
-
         updateModel();
 
 
     }
 
     public double getOppUtil(Bid lastOffer){
-        double oppUtil = 0;
-        for(Issue issue : lastOffer.getIssues()){
-            double v0 = getVo(issue, (ValueDiscrete) lastOffer.getValue(issue));
-            double wi = getDoubleU(issue.getNumber());
-            oppUtil += wi*v0;
-            //System.out.println("Vo: " + v0 + " wi " + wi);
-        }
-
-        return oppUtil;
+        return opponentModel.getUtility(lastOffer, MultiOpponentModel.Aggregate.MIN);
     }
 
 
-    private double getBidUtility(Bid bid){
-        double sum = 0.0;
-        for(Issue issue : bid.getIssues()){
-            ValueDiscrete valueDiscrete = (ValueDiscrete) bid.getValue(issue);
-            sum += vals.get(issue.getNumber() + valueDiscrete.getValue());
-        }
-        return sum;
+    private double getBidUtility(long id){
+        return codec.utility(id, utilities);
     }
 
-    public double getDoubleUHat(int issueNumber){
-        int issueIndex = issueNumber - 1;
-        int[] frequencies = table[issueIndex];
-
-        double what = 0;
-        for(int frequency : frequencies){
-            double freq = (double) frequency;
-            double time = (double) numberOfBids-1;
-
-            what += (freq*freq)/(time*time);
-        }
-
-        return what;
-    }
-
-    public double getDoubleU(int issueNumber){
-        double sum = 0;
-        for(Issue issue : utilitySpace.getDomain().getIssues()){
-            double whatj = getDoubleUHat(issue.getNumber());
-            sum += whatj;
+    private void updateModel(){
+        List<Bid> bidList = userModel.getBidRanking().getBidOrder();
+        if(estimator == null){
+            estimator = PreferenceEstimator.create(codec.getValueIndex());
+            //until the first solve is done, assume the profile is what it was last time
+            double[] remembered = memory.loadEstimate();
+            if(remembered != null){
+                estimator.setUtilities(remembered);
+            }
+            if(Boolean.getBoolean("group12.async")){
+                asyncEstimator = new AsyncEstimator(estimator);
+                asyncEstimator.setTimeLimit(budget.next());
+                asyncEstimator.submit(bidList);
+                //the first offer needs an estimate, unless an earlier session left one
+                if(remembered == null){
+                    asyncEstimator.await();
+                }
+            } else if(remembered != null){
+                //the first solve waits for the first turn
+                utilities = estimator.getUtilities();
+                return;
+            }
+        } else if(asyncEstimator != null){
+            //keep using the last snapshot, the new ranking is solved in the background
+            asyncEstimator.setTimeLimit(budget.next());
+            asyncEstimator.submit(bidList);
         }
 
-        double whati = getDoubleUHat(issueNumber);
-        double wi = whati/sum;
-        return wi;
-    }
-
-    public double getVo(Issue issue, ValueDiscrete valueDiscrete){
-        int[] optionFrequencies = table[issue.getNumber()-1];
-        String s = issue.getNumber() + valueDiscrete.getValue();
-        int valueIndex = indicies.get(s);
-        IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
-
-        int rank = 0;
-        for(int i=0; i<optionFrequencies.length; i++){
-            if(i!=valueIndex){
-                if(optionFrequencies[i] < optionFrequencies[valueIndex]){
-                    rank++;
-                }
-                if(optionFrequencies[i] == optionFrequencies[valueIndex]){
-                    Value vi = issueDiscrete.getValue(i);
-                    Value vv = issueDiscrete.getValue(valueIndex);
-                    if(vv.toString().toLowerCase().compareTo(vi.toString().toLowerCase()) > 0){
-                        rank++;
-                    }
+        if(asyncEstimator != null){
+            takeSnapshot();
+        } else {
+            estimator.setTimeLimit(budget.next());
+            if(estimator.update(bidList)){
+                if(estimator.optimize()){
+                    //the estimate keeps the order of the ranking, so its highest bid is the best one
+                    bestRanked = codec.id(bidList.get(bidList.size()-1));
+                    bestKnown = true;
+                } else {
+                    System.out.println("Estimation " + estimator.getStatus() + " after " + estimator.getSolveTime() + "s, keeping the last estimate");
                 }
             }
+            utilities = estimator.getUtilities();
         }
-
-        int k = optionFrequencies.length;
-        rank = k - rank;
-
-        double kk = (double) k;
-        double rankr = (double) rank;
-        double v0 = (kk-rankr+1)/k;
-        //System.out.println("Vo of " + valueDiscrete.getValue() + " is: " + v0);
-        return v0;
     }
 
-    private void updateModel(){
-        List<Bid> bidList = userModel.getBidRanking().getBidOrder();
-        List<Issue> issues = additiveUtilitySpace.getDomain().getIssues();
-        try{
-            GRBEnv env = new GRBEnv(true);
-            env.set("logFile", "LP2.log");
-            env.set(GRB.IntParam.OutputFlag, 0);
-            env.start();
-            // Create empty model
-            GRBModel model = new GRBModel(env);
-
-            //firstf -> create all vars
-            vars = new HashMap<>();
-            vals = new HashMap<>();
-            for(Issue issue : issues){
-                IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
-                for(ValueDiscrete valueDiscrete : issueDiscrete.getValues()){
-                    String s = issue.getNumber() + valueDiscrete.getValue();
-                    GRBVar a = model.addVar(0.0,1.0,0.0, GRB.CONTINUOUS, s);
-                    vars.put(s,a);
-                }
+    //uses the latest background solve: the best ranked bid is the highest bid it was solved for, or one elicited since
+    private void takeSnapshot(){
+        AsyncEstimator.Snapshot snapshot = asyncEstimator.getSnapshot();
+        utilities = snapshot.getUtilities();
+        if(snapshot == bestSnapshot){
+            return;
+        }
+        bestSnapshot = snapshot;
+        bestKnown = snapshot.getTop() != null;
+        if(bestKnown){
+            bestRanked = codec.id(snapshot.getTop());
+            for (int k = snapshot.getSize() - initiallyRanked; k < elicitedIds.size(); k++)
+            {
+                consider(elicitedIds.get(k));
             }
+        }
+    }
 
-            GRBVar epsilon = model.addVar(0.0,10,0.0,GRB.CONTINUOUS,"epsilon");
-
-            for(int i=0; i<bidList.size()-1; i++){
-                //b1 <= b2
-                Bid b1 = bidList.get(i);
-                Bid b2 = bidList.get(i+1);
-
-                GRBLinExpr LHS = new GRBLinExpr();
-                GRBLinExpr RHS = new GRBLinExpr();
-                LHS.addTerm(1.0,epsilon);
-
-                for(Issue issue : issues){
-                    ValueDiscrete v1 = (ValueDiscrete) b1.getValue(issue);
-                    ValueDiscrete v2 = (ValueDiscrete) b2.getValue(issue);
-
-                    String s1 = issue.getNumber() + v1.getValue();
-                    String s2 = issue.getNumber() + v2.getValue();
-
-                    LHS.addTerm(1.0,vars.get(s1));
-                    RHS.addTerm(1.0,vars.get(s2));
-                }
-
-                model.addConstr(LHS,GRB.LESS_EQUAL,RHS,i+"<=");
+    //ranked bid with the highest estimated utility, -1 if the ranking is empty
+    private long bestRanked(){
+        if(!bestKnown){
+            //the estimate was not solved for this ranking, like one of an earlier session
+            bestRanked = -1;
+            for (Bid bid : userModel.getBidRanking().getBidOrder())
+            {
+                consider(codec.id(bid));
             }
+            bestKnown = true;
+        }
+        return bestRanked;
+    }
 
-            Bid lowest = bidList.get(0);
-            Bid highest = bidList.get(bidList.size()-1);
-
-            GRBLinExpr lowestHS = new GRBLinExpr();
-            GRBLinExpr highestHS = new GRBLinExpr();
-
-            for(Issue issue : issues){
-                ValueDiscrete v1 = (ValueDiscrete) lowest.getValue(issue);
-                ValueDiscrete v2 = (ValueDiscrete) highest.getValue(issue);
-
-                String s1 = issue.getNumber() + v1.getValue();
-                String s2 = issue.getNumber() + v2.getValue();
+    //makes the ranked bid the best one if it beats it
+    private void consider(long id){
+        if(bestRanked < 0 || getBidUtility(id) > getBidUtility(bestRanked)){
+            bestRanked = id;
+        }
+    }
 
-                lowestHS.addTerm(1.0,vars.get(s1));
-                highestHS.addTerm(1.0,vars.get(s2));
+    //up to size of the candidates that are still unknown and above v by decreasing value of information,
+    //leaving out the ones that can't pay off
+    private long[] pickByValue(long[] top, double opponentUtility, double v, int size, long deadline)
+    {
+        voi.setUtilities(utilities);
+        long[] candidates = new long[top.length];
+        int count = 0;
+        for (long candidate : top)
+        {
+            if (!outcomes.isKnown(candidate) && getBidUtility(candidate) >= v)
+            {
+                candidates[count++] = candidate;
             }
+        }
 
-            model.addConstr(lowestHS, GRB.GREATER_EQUAL, 0.0, "min");
-            model.addConstr(highestHS, GRB.LESS_EQUAL, 1.0, "max");
-
-            GRBLinExpr objective = new GRBLinExpr();
-            objective.addTerm(1.0,epsilon);
-            model.setObjective(objective,GRB.MAXIMIZE);
-
-            model.optimize();
-            GRBVar[] vars = model.getVars();
-
-            for(int i=0; i<vars.length; i++){
-                GRBVar a = vars[i];
-                //System.out.println(a.get(GRB.StringAttr.VarName) + " " + a.get(GRB.DoubleAttr.X));
-                vals.put(a.get(GRB.StringAttr.VarName), a.get(GRB.DoubleAttr.X));
-            }
+        double[] scores = new double[count];
+        voi.score(candidates, count, opponentUtility, aspirationValue, v, Math.max(0, (deadline - System.nanoTime()) / 1e9), scores);
+        Integer[] order = new Integer[count];
+        for (int k = 0; k < count; k++)
+        {
+            order[k] = k;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
 
-            model.dispose();
-            env.dispose();
-        } catch (GRBException ee) {
-            ee.printStackTrace();
-            System.out.println("FAILLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLL");
+        int picked = 0;
+        while (picked < Math.min(size, count) && scores[order[picked]] > 0)
+        {
+            picked++;
         }
+        long[] picks = new long[picked];
+        for (int k = 0; k < picked; k++)
+        {
+            picks[k] = candidates[order[k]];
+        }
+        return picks;
     }
 
 
@@ -295,11 +267,20 @@ public class ExampleAgent extends AbstractNegotiationParty {
         double time = getTimeLine().getTime(); // Gets the time, running from t = 0 (start) to t = 1 (deadline).
         // The time is normalized, so agents need not be
         // concerned with the actual internal clock.
+        budget.tick();
 
 
         aspirationValue *= 0.9;
         double maxNegotiationVal = -1;
 
+        if(asyncEstimator != null){
+            //pick up whatever finished since the last turn
+            takeSnapshot();
+        } else {
+            //solves if there was no optimal solve of the ranking yet, else returns straight away
+            updateModel();
+        }
+
         /**
          * Update User Model
          */
@@ -312,8 +293,6 @@ public class ExampleAgent extends AbstractNegotiationParty {
 
         elicitationStrategy();
 
-        List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
-
 
         Bid offer = null;
         //double opponentUtility = Math.random();
@@ -325,22 +304,19 @@ public class ExampleAgent extends AbstractNegotiationParty {
             System.out.println("LASTOFFER was null for some reason hm...........");
         }
 
-        for (Bid bid : bidOrder)
+        //the negotiation value doesn't go down with our utility, so it is highest for the best ranked bid
+        long best = bestRanked();
+        if (best >= 0)
         {
-            double negotationVal = ((opponentUtility * getBidUtility(bid)) + ((1-opponentUtility) * aspirationValue));
-
-            if (negotationVal > maxNegotiationVal)
-            {
-                maxNegotiationVal = negotationVal;
-                offer = bid;
-            }
+            maxNegotiationVal = ((opponentUtility * getBidUtility(best)) + ((1-opponentUtility) * aspirationValue));
+            offer = outcomes.getBid(best);
         }
 
         if (maxNegotiationVal == reservationValue)
         {
             return new EndNegotiation(this.getPartyId());
         }
-        else if (lastReceivedOffer != null && lastReceivedOffer.equals(offer))
+        else if (lastReceivedOffer != null && offer != null && lastReceivedId == codec.id(offer))
         {
             return new Accept(this.getPartyId(), lastReceivedOffer);
         }
@@ -352,59 +328,96 @@ public class ExampleAgent extends AbstractNegotiationParty {
 
     public void elicitationStrategy()
     {
-        //Map containing bid and "z-index"
-        Map<Bid, Double> zMap = new HashMap<>();
-        double opponentUtility = Math.random();
+        double opponentUtility = rand.nextDouble();
 
-        //Calculates z-index for each unknown bid
-        for (Bid bid : unknownBids)
-        {
-            double z = ((opponentUtility * getBidUtility(bid)) + ((1-opponentUtility) * aspirationValue)) - user.getElicitationCost();
-            zMap.put(bid, z);
-        }
-
-        //Creates a maxHeap containing all z-index's
-        PriorityQueue<Bid> maxHeap = new PriorityQueue<>((a,b) -> Double.compare(zMap.get(b), zMap.get(a)));
-        maxHeap.addAll(zMap.keySet());
-
-        double z = getBidUtility(maxHeap.peek());
-
-        List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
+        //The z-index grows with the estimated utility, so the queue order at the start is the z-index order
+        queue.update(utilities);
 
         double v = 0;
 
         //Gets current maximum known negotiation value out of the known bids
-        for (Bid bid : bidOrder)
+        long known = bestRanked();
+        if (known >= 0)
         {
-            v = Math.max(v, ((opponentUtility * getBidUtility(bid)) + ((1-opponentUtility) * aspirationValue)));
+            v = Math.max(v, ((opponentUtility * getBidUtility(known)) + ((1-opponentUtility) * aspirationValue)));
         }
 
-        //Elicit bids which have a estimated utility value higher than our current maximum known value
-        while (!maxHeap.isEmpty() && z >= v)
+        //Unknown bids from the highest z-index down
+        long id = queue.peek();
+        double z = id >= 0 ? queue.peekUtility() : 0;
+        //in value of information mode the candidates of the whole turn, the queue order only changes next turn
+        long[] candidates = voi != null ? queue.top(VOI_CANDIDATES) : null;
+
+        //Elicit bids which have a estimated utility value higher than our current maximum known value,
+        //re-estimating after every bid, or after every batch in batch mode
+        int elicited = 0;
+        long voiDeadline = System.nanoTime() + (long) (Math.min(VOI_TIME, budget.next()) * 1e9);
+        while (voi != null || (id >= 0 && z >= v))
         {
-            Bid w = maxHeap.poll();
-
-            //  System.out.println("Old value: " + (zMap.get(newBid) + user.getElicitationCost()));
-            // System.out.println("Real Utility: " + realUSpace.getUtility(w));
-            double estimatedUtility = getBidUtility(w);
-            System.out.println("");
-            System.out.println("Bid: " + mseCounter);
-            System.out.println("Predicted utility: " + estimatedUtility);
-            double realUtility = realUSpace.getUtility(w);
-            userModel = user.elicitRank(w, userModel);
+            int size = batch != null ? batch.size(elicited) : 1;
+            //in value of information mode the batch is the candidates that pay off most, best first, all of them asked
+            long[] picks = voi != null ? pickByValue(candidates, opponentUtility, v, size, voiDeadline) : null;
+            if (picks != null && picks.length == 0)
+            {
+                break;
+            }
+            List<Bid> asked = new ArrayList<>();
+            List<Double> predicted = new ArrayList<>();
+            for (int k = 0; picks != null ? k < picks.length : id >= 0 && z >= v && asked.size() < size; k++)
+            {
+                if (picks != null)
+                {
+                    id = picks[k];
+                }
+                Bid w = outcomes.getBid(id);
+
+                // System.out.println("Real Utility: " + realUSpace.getUtility(w));
+                double estimatedUtility = getBidUtility(id);
+                System.out.println("");
+                System.out.println("Bid: " + (mseCounter + asked.size()));
+                System.out.println("Predicted utility: " + estimatedUtility);
+                userModel = user.elicitRank(w, userModel);
+                elicitedIds.add(id);
+                if (voi != null)
+                {
+                    voi.add(id);
+                }
+                if (bestKnown)
+                {
+                    consider(id);
+                }
+                asked.add(w);
+                predicted.add(estimatedUtility);
+
+                outcomes.setKnown(w);
+                v = Math.max(v, ((opponentUtility * getUtility(w)) + ((1-opponentUtility) * aspirationValue)));
+                id = queue.peek();
+                z = id < 0 ? 0 : getUtility(outcomes.getBid(id));
+            }
+
+            long start = System.nanoTime();
             updateModel();
+            if (batch != null)
+            {
+                batch.solved((System.nanoTime() - start) / 1e9);
+            }
             //System.out.println("Elicited prediction value: " + getBidUtility(w));
 
-            double accuracy = (Math.abs(realUtility - estimatedUtility)/realUtility) * 100;
-            mseSum += accuracy;
-
-            System.out.println("Accuracy " + mseCounter + ": " + mseSum/mseCounter);
+            for (int k = 0; k < asked.size(); k++)
+            {
+                double realUtility = realUSpace.getUtility(asked.get(k));
+                double accuracy = (Math.abs(realUtility - predicted.get(k))/realUtility) * 100;
+                mseSum += accuracy;
 
-            mseCounter++;
+                System.out.println("Accuracy " + mseCounter + ": " + mseSum/mseCounter);
 
-            unknownBids.remove(w);
-            v = Math.max(v, ((opponentUtility * getUtility(w)) + ((1-opponentUtility) * aspirationValue)));
-            z = maxHeap.isEmpty() ? 0 : getUtility(maxHeap.peek());
+                mseCounter++;
+            }
+            elicited += asked.size();
+        }
+        if (batch != null)
+        {
+            batch.elicited(elicited);
         }
     }
 
@@ -423,7 +436,26 @@ public class ExampleAgent extends AbstractNegotiationParty {
 
             // storing last received offer
             lastReceivedOffer = offer.getBid();
+            lastReceivedId = codec.intern(lastReceivedOffer);
+            if(opponentModel.get(sender).getNumberOfBids() == 0){
+                memory.restoreOpponent(sender, opponentModel.get(sender));
+            }
+            opponentModel.update(sender, lastReceivedId);
+        }
+    }
+
+    @Override
+    public HashMap<String, String> negotiationEnded(Bid acceptedBid) {
+        memory.storeEstimate(utilities);
+        memory.storeOpponents(opponentModel);
+        memory.save();
+
+        if(asyncEstimator != null){
+            asyncEstimator.dispose();
+        } else if(estimator != null){
+            estimator.dispose();
         }
+        return super.negotiationEnded(acceptedBid);
     }
 
     /**
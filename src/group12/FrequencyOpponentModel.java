@@ -0,0 +1,387 @@
+package group12;
+
+import genius.core.Bid;
+import genius.core.issue.IssueDiscrete;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Frequency model of the opponent, kept up to date per received offer instead of recomputed per query.
+ *
+ * The weight of an issue is its sum of squared value frequencies over the sum for all issues (the
+ * (n-1)^2 normalization of the lab cancels out). The Vo of a value is (1 + number of values below it) / k,
+ * where values are ordered by frequency and equal frequencies by lower case name. Both sums of squares and
+ * the order per issue are updated when an offer comes in, so a query is a few array loads per issue.
+ *
+ * Offers can be counted in three ways: all offers of the session, only the last few offers, or all offers
+ * with older offers weighing exponentially less so the model follows the opponent's concessions.
+ */
+public class FrequencyOpponentModel implements OpponentModel {
+    public enum Mode { CUMULATIVE, WINDOW, DECAY }
+
+    //batches of at least this many ids are scored in parallel, in chunks of this size
+    private static final int PARALLEL_BATCH = 4096;
+    //in DECAY mode all counts are scaled back once the weight of a new offer grows past this
+    private static final double RESCALE = 1e100;
+
+    private BidCodec codec;
+    private Mode mode;
+    private int numberOfBids;
+    private double[][] frequencies;
+    //per issue sum of squared frequencies, and their total
+    private double[] sumSquares;
+    private double total;
+
+    //per issue the values from lowest to highest, the position of every value in it and its Vo
+    private int[][] order;
+    private int[][] position;
+    private double[][] vo;
+    //rank of the lower case name of every value, equal names get the same rank
+    private int[][] names;
+
+    //WINDOW: the counted offers, oldest at windowStart
+    private long[] window;
+    private int windowStart;
+    private int windowCount;
+    //WINDOW: counts from earlier sessions by ValueIndex column, standing for priorOffers offers before the first one
+    private double[] prior;
+    private double priorOffers;
+    //DECAY: instead of shrinking all counts every offer, the next offer counts 1/decay times more
+    private double decay;
+    private double increment = 1.0;
+
+    public FrequencyOpponentModel(BidCodec codec){
+        this(codec, Mode.CUMULATIVE, 0);
+    }
+
+    /**
+     * @param parameter WINDOW: number of offers that are counted, DECAY: factor in (0,1] every count is
+     *                  multiplied with per new offer, ignored for CUMULATIVE
+     */
+    public FrequencyOpponentModel(BidCodec codec, Mode mode, double parameter){
+        if(mode == Mode.WINDOW && parameter < 1){
+            throw new IllegalArgumentException("Window must hold at least one offer: " + parameter);
+        }
+        if(mode == Mode.DECAY && !(parameter > 0 && parameter <= 1)){
+            throw new IllegalArgumentException("Decay must be in (0,1]: " + parameter);
+        }
+        this.codec = codec;
+        this.mode = mode;
+        if(mode == Mode.WINDOW){
+            window = new long[(int) parameter];
+        }
+        decay = parameter;
+
+        ValueIndex index = codec.getValueIndex();
+        int issues = index.getIssueCount();
+        frequencies = new double[issues][];
+        sumSquares = new double[issues];
+        order = new int[issues][];
+        position = new int[issues][];
+        vo = new double[issues][];
+        names = new int[issues][];
+
+        for(int i=0; i<issues; i++){
+            IssueDiscrete issueDiscrete = (IssueDiscrete) index.getIssues().get(i);
+            int k = index.getNumberOfValues(i);
+            frequencies[i] = new double[k];
+
+            String[] lower = new String[k];
+            Integer[] byName = new Integer[k];
+            for(int v=0; v<k; v++){
+                lower[v] = issueDiscrete.getValue(v).toString().toLowerCase();
+                byName[v] = v;
+            }
+            Arrays.sort(byName, (a,b) -> lower[a].compareTo(lower[b]));
+
+            //with all frequencies 0 the order is the name order
+            names[i] = new int[k];
+            order[i] = new int[k];
+            position[i] = new int[k];
+            vo[i] = new double[k];
+            for(int p=0; p<k; p++){
+                int v = byName[p];
+                names[i][v] = p > 0 && lower[v].equals(lower[byName[p-1]]) ? names[i][byName[p-1]] : p;
+                order[i][p] = v;
+                position[i][v] = p;
+            }
+            refresh(i, 0, k-1);
+        }
+    }
+
+    /**
+     * Model chosen with -Dgroup12.opponent: cumulative (default), window:&lt;offers&gt; or decay:&lt;factor&gt;.
+     */
+    public static FrequencyOpponentModel create(BidCodec codec){
+        String setting = System.getProperty("group12.opponent", "cumulative");
+        try{
+            if(setting.startsWith("window:")){
+                return new FrequencyOpponentModel(codec, Mode.WINDOW, Integer.parseInt(setting.substring(7)));
+            }
+            if(setting.startsWith("decay:")){
+                return new FrequencyOpponentModel(codec, Mode.DECAY, Double.parseDouble(setting.substring(6)));
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Bad group12.opponent " + setting + ", counting all offers: " + e);
+        }
+        return new FrequencyOpponentModel(codec);
+    }
+
+    public BidCodec getCodec(){
+        return codec;
+    }
+
+    public Mode getMode(){
+        return mode;
+    }
+
+    public void update(Bid bid){
+        update(codec.id(bid));
+    }
+
+    /**
+     * Counts one offer of the opponent.
+     */
+    @Override
+    public void update(long id){
+        numberOfBids++;
+        if(mode == Mode.WINDOW){
+            //offers of earlier sessions are older than any of this one, so they drop out first
+            double excess = windowCount + priorOffers + 1 - window.length;
+            if(excess > 0 && priorOffers > 0){
+                expirePrior(Math.min(excess, priorOffers));
+            }
+            //the oldest offer drops out of a full window
+            if(windowCount == window.length){
+                long oldest = window[windowStart];
+                for(int i=0; i<frequencies.length; i++){
+                    add(i, codec.code(oldest, i), -1.0);
+                }
+                windowStart = (windowStart + 1) % window.length;
+                windowCount--;
+            }
+            window[(windowStart + windowCount) % window.length] = id;
+            windowCount++;
+        }
+
+        for(int i=0; i<frequencies.length; i++){
+            add(i, codec.code(id, i), increment);
+        }
+
+        if(mode == Mode.DECAY){
+            increment /= decay;
+            if(increment > RESCALE){
+                rescale();
+            }
+        }
+    }
+
+    /**
+     * Counts offers offers made before this session, in which every value has the share of its issue given by
+     * shares, indexed by {@link ValueIndex} column. Used to start from what an earlier session learned. In
+     * WINDOW mode they take up room in the window, as far as it is free, and drop out before any offer of
+     * this session does.
+     */
+    public void addPrior(double[] shares, double offers){
+        if(mode == Mode.WINDOW){
+            offers = Math.min(offers, window.length - windowCount - priorOffers);
+            if(offers <= 0){
+                return;
+            }
+            if(prior == null){
+                prior = new double[shares.length];
+            }
+            for(int c=0; c<shares.length; c++){
+                prior[c] += offers * shares[c];
+            }
+            priorOffers += offers;
+        }
+        ValueIndex index = codec.getValueIndex();
+        for(int i=0; i<frequencies.length; i++){
+            for(int v=0; v<frequencies[i].length; v++){
+                add(i, v, offers * shares[index.offset(i) + v] * increment);
+            }
+        }
+    }
+
+    /**
+     * @return number of offers received, also the ones no longer counted
+     */
+    @Override
+    public int getNumberOfBids(){
+        return numberOfBids;
+    }
+
+    /**
+     * @return how often the value was offered, in DECAY mode relative to the other values only
+     */
+    public double getFrequency(int issue, int value){
+        return frequencies[issue][value];
+    }
+
+    /**
+     * @return frequencies of every value of the i-th issue, don't modify
+     */
+    public double[] getFrequencies(int issue){
+        return frequencies[issue];
+    }
+
+    /**
+     * @return estimated weight of the i-th issue, all issues weigh the same before the first offer
+     */
+    public double getWeight(int issue){
+        if(total <= 0){
+            return 1.0 / frequencies.length;
+        }
+        return sumSquares[issue] / total;
+    }
+
+    public double getVo(int issue, int value){
+        return vo[issue][value];
+    }
+
+    public double getUtility(Bid bid){
+        return getUtility(codec.id(bid));
+    }
+
+    @Override
+    public double getUtility(long id){
+        double utility = 0;
+        for(int i=0; i<frequencies.length; i++){
+            utility += getWeight(i) * vo[i][codec.code(id, i)];
+        }
+        return utility;
+    }
+
+    /**
+     * Scores the first count ids in one pass, utilities[k] gets the estimated opponent utility of ids[k].
+     * Large batches are split over the common fork/join pool, so don't update the model meanwhile.
+     */
+    public void getUtilities(long[] ids, int count, double[] utilities){
+        double[] scores = getScores();
+        if(count < PARALLEL_BATCH){
+            score(scores, ids, 0, count, utilities);
+            return;
+        }
+        int chunks = (count + PARALLEL_BATCH - 1) / PARALLEL_BATCH;
+        IntStream.range(0, chunks).parallel().forEach(c ->
+                score(scores, ids, c * PARALLEL_BATCH, Math.min(count, (c+1) * PARALLEL_BATCH), utilities));
+    }
+
+    /**
+     * @return weight times Vo of every value by {@link ValueIndex} column, so the utility of a bid is the sum
+     * of the scores of its values
+     */
+    @Override
+    public double[] getScores(){
+        ValueIndex index = codec.getValueIndex();
+        double[] scores = new double[index.size()];
+        for(int i=0; i<frequencies.length; i++){
+            double weight = getWeight(i);
+            int offset = index.offset(i);
+            for(int v=0; v<vo[i].length; v++){
+                scores[offset + v] = weight * vo[i][v];
+            }
+        }
+        return scores;
+    }
+
+    private void score(double[] scores, long[] ids, int from, int to, double[] utilities){
+        for(int k=from; k<to; k++){
+            utilities[k] = codec.utility(ids[k], scores);
+        }
+    }
+
+    //adds amount to the frequency of a value and moves it to its new place in the order
+    private void add(int issue, int value, double amount){
+        double f = frequencies[issue][value];
+        frequencies[issue][value] = f + amount;
+        //(f+a)^2 - f^2
+        double delta = (2 * f + amount) * amount;
+        sumSquares[issue] += delta;
+        total += delta;
+
+        int[] o = order[issue];
+        int[] pos = position[issue];
+        int from = pos[value];
+        int p = from;
+        if(amount > 0){
+            while(p+1 < o.length && compare(issue, o[p+1], value) < 0){
+                o[p] = o[p+1];
+                pos[o[p]] = p;
+                p++;
+            }
+        } else {
+            while(p > 0 && compare(issue, o[p-1], value) > 0){
+                o[p] = o[p-1];
+                pos[o[p]] = p;
+                p--;
+            }
+        }
+        o[p] = value;
+        pos[value] = p;
+        refresh(issue, Math.min(from, p), Math.max(from, p));
+    }
+
+    //takes the given number of the earlier sessions' offers out of the window, evenly over their values
+    private void expirePrior(double offers){
+        ValueIndex index = codec.getValueIndex();
+        double share = offers >= priorOffers ? 1.0 : offers / priorOffers;
+        for(int i=0; i<frequencies.length; i++){
+            for(int v=0; v<frequencies[i].length; v++){
+                int c = index.offset(i) + v;
+                double amount = share == 1.0 ? prior[c] : prior[c] * share;
+                if(amount > 0){
+                    add(i, v, -amount);
+                    prior[c] -= amount;
+                }
+            }
+        }
+        priorOffers = share == 1.0 ? 0 : priorOffers - offers;
+    }
+
+    //scales all counts back so the offer weights stay finite, the order and weights don't change
+    private void rescale(){
+        double scale = 1.0 / increment;
+        increment = 1.0;
+        total = 0;
+        for(int i=0; i<frequencies.length; i++){
+            double sum = 0;
+            for(int v=0; v<frequencies[i].length; v++){
+                double f = frequencies[i][v] * scale;
+                frequencies[i][v] = f;
+                sum += f * f;
+            }
+            sumSquares[i] = sum;
+            total += sum;
+        }
+    }
+
+    //order of two values of an issue: by frequency, then by name
+    private int compare(int issue, int a, int b){
+        int c = Double.compare(frequencies[issue][a], frequencies[issue][b]);
+        return c != 0 ? c : Integer.compare(names[issue][a], names[issue][b]);
+    }
+
+    //recomputes Vo for the positions from..to, values that compare equal share the lowest position
+    private void refresh(int issue, int from, int to){
+        int[] o = order[issue];
+        //a group of equal values may start before from, or continue after to
+        while(from > 0 && compare(issue, o[from-1], o[from]) == 0){
+            from--;
+        }
+        while(to+1 < o.length && compare(issue, o[to+1], o[to]) == 0){
+            to++;
+        }
+
+        int k = o.length;
+        int start = from;
+        for(int p=from; p<=to; p++){
+            if(p > from && compare(issue, o[p-1], o[p]) != 0){
+                start = p;
+            }
+            vo[issue][o[p]] = (1.0 + start) / k;
+        }
+    }
+}
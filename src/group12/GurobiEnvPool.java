@@ -0,0 +1,80 @@
+package group12;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Process wide pool of started Gurobi environments, starting an environment (license check, log file)
+ * takes longer than solving a ranking LP so it is done once per JVM instead of once per session.
+ *
+ * An environment is leased for the lifetime of one model and released when the model is disposed,
+ * so models solved in parallel never share an environment. All environments are disposed when the JVM
+ * shuts down.
+ *
+ * Gurobi is silent by default, set the system property group12.gurobi.log to a file name to log all
+ * solves to that file.
+ */
+public final class GurobiEnvPool {
+    private static final ArrayDeque<GRBEnv> idle = new ArrayDeque<>();
+    private static final ArrayList<GRBEnv> started = new ArrayList<>();
+    private static boolean closed;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(GurobiEnvPool::shutdown, "gurobi-env-pool"));
+    }
+
+    private GurobiEnvPool(){
+    }
+
+    public static synchronized GRBEnv lease() throws GRBException {
+        if(closed){
+            throw new IllegalStateException("Gurobi environment pool is shut down");
+        }
+        if(!idle.isEmpty()){
+            return idle.pop();
+        }
+
+        GRBEnv env = new GRBEnv(true);
+        String logFile = System.getProperty("group12.gurobi.log");
+        if(logFile != null && !logFile.isEmpty()){
+            env.set("logFile", logFile);
+            env.set(GRB.IntParam.LogToConsole, 0);
+        } else {
+            env.set(GRB.IntParam.OutputFlag, 0);
+        }
+        env.start();
+        started.add(env);
+        return env;
+    }
+
+    /**
+     * Hands the environment back, all models created in it must have been disposed.
+     */
+    public static synchronized void release(GRBEnv env){
+        if(closed){
+            //shutdown already disposed it
+            return;
+        }
+        idle.push(env);
+    }
+
+    /**
+     * Disposes all environments, called by the shutdown hook but can also be called when no solves are left.
+     */
+    public static synchronized void shutdown(){
+        closed = true;
+        for(GRBEnv env : started){
+            try{
+                env.dispose();
+            } catch (GRBException e) {
+                e.printStackTrace();
+            }
+        }
+        started.clear();
+        idle.clear();
+    }
+}
@@ -0,0 +1,273 @@
+package group12;
+
+import genius.core.Bid;
+import gurobi.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Gurobi backend of the {@link PreferenceEstimator}, keeps the ranking LP alive for the whole session instead of rebuilding it for every elicited bid.
+ *
+ * The model is built once from the bid ranking. When a bid gets inserted into the ranking only the
+ * constraint between its two new neighbours is removed and the (at most two) constraints next to it
+ * are added, after that the LP is re-optimized with dual simplex from the previous basis.
+ *
+ * The environment is leased from the {@link GurobiEnvPool} and handed back by {@link #dispose()}.
+ */
+public class GurobiEstimator implements PreferenceEstimator {
+    private ValueIndex index;
+    private GRBEnv env;
+    private GRBModel model;
+    private RankingLP lp;
+    //one variable per column of the ranking LP, the values of the index and epsilon last
+    private GRBVar[] vars;
+    private GRBVar epsilon;
+    //bids in the order the model was built for, pairs.get(i) is the constraint bids.get(i) <= bids.get(i+1)
+    private ArrayList<Bid> bids;
+    private ArrayList<GRBConstr> pairs;
+    private GRBConstr min;
+    private GRBConstr max;
+    private double[] utilities;
+    private int constraintCount;
+    private double timeLimit = Double.POSITIVE_INFINITY;
+    private Status status = Status.NOT_SOLVED;
+    private double solveTime;
+    //the ranking changed since the last optimal solve
+    private boolean dirty;
+
+    public GurobiEstimator(ValueIndex index) throws GRBException {
+        this.index = index;
+        lp = new RankingLP(index);
+        utilities = new double[index.size()];
+        env = GurobiEnvPool.lease();
+    }
+
+    /**
+     * If bids were only inserted into the ranking since the last call they are inserted one by one, changing
+     * only the constraints around them. A bid that was removed or moved rebuilds the model.
+     */
+    @Override
+    public boolean update(List<Bid> bidList) {
+        try{
+            int[] inserted = model == null ? null : insertedPositions(bidList);
+            if(inserted == null){
+                dirty = true;
+                build(bidList);
+                return true;
+            }
+            if(inserted.length == 0){
+                return dirty;
+            }
+            dirty = true;
+            //in increasing position, so the ranking before each one already matches the new one
+            for(int k : inserted){
+                insert(bidList.get(k), k);
+            }
+        } catch (GRBException e) {
+            e.printStackTrace();
+            //start from scratch next time
+            model = null;
+        }
+        return true;
+    }
+
+    public void build(List<Bid> bidList) throws GRBException {
+        if(model != null){
+            model.dispose();
+        }
+        model = new GRBModel(env);
+        //dual simplex keeps the basis between solves, so re-optimizing after a change is warm-started
+        model.set(GRB.IntParam.Method, 1);
+
+        lp.build(bidList);
+        int n = lp.getNumberOfColumns();
+        double[] lb = new double[n];
+        double[] ub = new double[n];
+        double[] obj = new double[n];
+        char[] types = new char[n];
+        String[] names = new String[n];
+        for(int j=0; j<n; j++){
+            ub[j] = 1.0;
+            types[j] = GRB.CONTINUOUS;
+            names[j] = j == lp.getEpsilon() ? "epsilon" : index.name(j);
+        }
+        ub[lp.getEpsilon()] = 10;
+        vars = model.addVars(lb, ub, obj, types, names);
+        epsilon = vars[lp.getEpsilon()];
+
+        GRBLinExpr objective = new GRBLinExpr();
+        objective.addTerm(1.0,epsilon);
+        model.setObjective(objective,GRB.MAXIMIZE);
+
+        //all pair rows in one call, straight from the sparse matrix
+        int[] columns = lp.getColumns();
+        double[] coefficients = lp.getCoefficients();
+        GRBVar[] terms = new GRBVar[lp.getNumberOfEntries()];
+        for(int p=0; p<terms.length; p++){
+            terms[p] = vars[columns[p]];
+        }
+        int rows = lp.getRows();
+        GRBLinExpr[] lhs = new GRBLinExpr[rows];
+        char[] senses = new char[rows];
+        double[] rhs = new double[rows];
+        String[] rowNames = new String[rows];
+        for(int k=0; k<rows; k++){
+            lhs[k] = new GRBLinExpr();
+            lhs[k].addTerms(coefficients, terms, lp.rowStart(k), lp.rowEnd(k) - lp.rowStart(k));
+            senses[k] = GRB.LESS_EQUAL;
+            rowNames[k] = "c"+(constraintCount++);
+        }
+
+        bids = new ArrayList<>(bidList);
+        pairs = new ArrayList<>(Arrays.asList(model.addConstrs(lhs, senses, rhs, rowNames)));
+        min = addBound(bids.get(0), GRB.GREATER_EQUAL, 0.0);
+        max = addBound(bids.get(bids.size()-1), GRB.LESS_EQUAL, 1.0);
+    }
+
+    /**
+     * Inserts bid at position index of the ranking, touching only the constraints next to it.
+     */
+    public void insert(Bid bid, int index) throws GRBException {
+        int size = bids.size();
+        bids.add(index, bid);
+
+        //the new bid sits between two bids that were neighbours before
+        if(index > 0 && index < size){
+            model.remove(pairs.remove(index-1));
+        }
+        if(index > 0){
+            pairs.add(index-1, addPair(bids.get(index-1), bid));
+        }
+        if(index < size){
+            pairs.add(index, addPair(bid, bids.get(index+1)));
+        }
+
+        if(index == 0){
+            model.remove(min);
+            min = addBound(bid, GRB.GREATER_EQUAL, 0.0);
+        }
+        if(index == size){
+            model.remove(max);
+            max = addBound(bid, GRB.LESS_EQUAL, 1.0);
+        }
+    }
+
+    @Override
+    public boolean optimize() {
+        if(model == null){
+            return false;
+        }
+        long start = System.nanoTime();
+        try{
+            model.set(GRB.DoubleParam.TimeLimit, Double.isInfinite(timeLimit) ? GRB.INFINITY : timeLimit);
+            model.optimize();
+            solveTime = (System.nanoTime() - start) / 1e9;
+            int grbStatus = model.get(GRB.IntAttr.Status);
+            if(grbStatus != GRB.Status.OPTIMAL){
+                status = grbStatus == GRB.Status.TIME_LIMIT ? Status.TIME_LIMIT : Status.FAILED;
+                return false;
+            }
+
+            double[] x = model.get(GRB.DoubleAttr.X, vars);
+            System.arraycopy(x, 0, utilities, 0, utilities.length);
+            status = Status.OPTIMAL;
+            dirty = false;
+            return true;
+        } catch (GRBException e) {
+            e.printStackTrace();
+            solveTime = (System.nanoTime() - start) / 1e9;
+            status = Status.FAILED;
+            return false;
+        }
+    }
+
+    @Override
+    public void setTimeLimit(double seconds){
+        timeLimit = seconds;
+    }
+
+    @Override
+    public Status getStatus(){
+        return status;
+    }
+
+    @Override
+    public double getSolveTime(){
+        return solveTime;
+    }
+
+    @Override
+    public double[] getUtilities(){
+        return utilities;
+    }
+
+    @Override
+    public void setUtilities(double[] utilities){
+        System.arraycopy(utilities, 0, this.utilities, 0, this.utilities.length);
+    }
+
+    @Override
+    public void dispose(){
+        try{
+            if(model != null){
+                model.dispose();
+            }
+        } catch (GRBException e) {
+            e.printStackTrace();
+        } finally {
+            model = null;
+            //a model that failed to dispose must not keep the environment from the pool
+            if(env != null){
+                GurobiEnvPool.release(env);
+                env = null;
+            }
+        }
+    }
+
+    //positions in bidList of the bids that are not in the model, null if a bid of the model was removed or moved
+    private int[] insertedPositions(List<Bid> bidList){
+        if(bidList.size() < bids.size()){
+            return null;
+        }
+        int[] inserted = new int[bidList.size() - bids.size()];
+        int i = 0;
+        int count = 0;
+        for(int k=0; k<bidList.size(); k++){
+            if(i < bids.size() && bids.get(i).equals(bidList.get(k))){
+                i++;
+            } else if(count < inserted.length){
+                inserted[count++] = k;
+            } else {
+                return null;
+            }
+        }
+        return inserted;
+    }
+
+    //b1 + epsilon <= b2, same as a row of the RankingLP
+    private GRBConstr addPair(Bid b1, Bid b2) throws GRBException {
+        GRBLinExpr expr = new GRBLinExpr();
+        expr.addTerm(1.0,epsilon);
+
+        for(int i=0; i<index.getIssueCount(); i++){
+            int c1 = index.column(b1, i);
+            int c2 = index.column(b2, i);
+            if(c1 != c2){
+                expr.addTerm(1.0,vars[c1]);
+                expr.addTerm(-1.0,vars[c2]);
+            }
+        }
+
+        return model.addConstr(expr,GRB.LESS_EQUAL,0.0,"c"+(constraintCount++));
+    }
+
+    private GRBConstr addBound(Bid bid, char sense, double rhs) throws GRBException {
+        GRBLinExpr expr = new GRBLinExpr();
+        for(int i=0; i<index.getIssueCount(); i++){
+            expr.addTerm(1.0,vars[index.column(bid, i)]);
+        }
+        return model.addConstr(expr, sense, rhs, "c"+(constraintCount++));
+    }
+}
@@ -8,7 +8,6 @@ import genius.core.actions.EndNegotiation;
 import genius.core.actions.Offer;
 import genius.core.issue.Issue;
 import genius.core.issue.IssueDiscrete;
-import genius.core.issue.Value;
 import genius.core.issue.ValueDiscrete;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
@@ -16,7 +15,6 @@ import genius.core.uncertainty.BidRanking;
 import genius.core.utility.AbstractUtilitySpace;
 import genius.core.utility.AdditiveUtilitySpace;
 import genius.core.utility.EvaluatorDiscrete;
-import gurobi.*;
 import org.w3c.dom.ls.LSOutput;
 
 import java.util.ArrayList;
@@ -30,18 +28,18 @@ import java.util.List;
  */
 public class LP extends AbstractNegotiationParty
 {
-    private static double MINIMUM_TARGET = 0.8;
-    private static double TARGET_UTILITY;
-    private static double THRESHOLD;
+    private static final double MINIMUM_TARGET = 0.8;
+    private double TARGET_UTILITY;
+    private double THRESHOLD;
     private Bid lastOffer;
-    int[][] table;
-    HashMap<String,Integer> indicies;
-    int numberOfBids;
-    private static int N = 10;
+    MultiOpponentModel opponentModel;
+    BidCodec codec;
+    //own utility of every bid, sorted
+    private UtilityTable utilityTable;
+    private static final int N = 10;
     private Bid lowest;
     private Bid highest;
     private ArrayList<Uij> uoos;
-    private ArrayList<GRBLinExpr> constraints;
     private HashMap<Uij,Double> us;
 
     /**
@@ -58,11 +56,10 @@ public class LP extends AbstractNegotiationParty
 
         //List of issues
         List<Issue> issues = additiveUtilitySpace.getDomain().getIssues();
-        table = new int[issues.size()][];
-        indicies = new HashMap<>();
-        numberOfBids = 0;
+        codec = new BidCodec(DomainCache.index(additiveUtilitySpace.getDomain()));
+        utilityTable = DomainCache.table(additiveUtilitySpace);
+        opponentModel = new MultiOpponentModel(codec);
         uoos = new ArrayList<>();
-        constraints = new ArrayList<>();
         us = new HashMap<>();
 
         for (Issue issue : issues) {
@@ -71,14 +68,9 @@ public class LP extends AbstractNegotiationParty
 
             int counter = 0;
             for (ValueDiscrete valueDiscrete : issueDiscrete.getValues()) {
-                String s = issueNumber + valueDiscrete.getValue();
-                indicies.put(s,counter);
                 uoos.add(new Uij(issueNumber,counter));
                 counter++;
             }
-
-            int issueIndex = issueNumber-1;
-            table[issueIndex] = new int[issueDiscrete.getValues().size()];
         }
 
         TARGET_UTILITY = getUtility(getMaxUtilityBid());
@@ -93,76 +85,24 @@ public class LP extends AbstractNegotiationParty
             IssueDiscrete issueDiscrete = (IssueDiscrete) i;
             System.out.println("ISSUE " + i.getNumber() + " HAS " + issueDiscrete.getValues().size() + " VALUES");
         }
-        System.out.println("NUMBER OF Uij: " + indicies.size());
-
-
-        try{
-            GRBEnv env = new GRBEnv(true);
-            env.set("logFile", "LP.log");
-            env.start();
-            // Create empty model
-            GRBModel model = new GRBModel(env);
-
-            for(int i=0; i<bidList.size()-1; i++){
-                //b1 <= b2
-                Bid b1 = bidList.get(i);
-                Bid b2 = bidList.get(i+1);
-                GRBLinExpr LHS = new GRBLinExpr();
-                GRBLinExpr RHS = new GRBLinExpr();
-
-                for(Issue issue : issues){
-                    ValueDiscrete v1 = (ValueDiscrete) b1.getValue(issue);
-                    ValueDiscrete v2 = (ValueDiscrete) b2.getValue(issue);
-
-                    Uij u1 = getUij(issue.getNumber(), v1);
-                    Uij u2 = getUij(issue.getNumber(), v2);
-
-                    LHS.addTerm(1.0, model.addVar(0.0,1.0,0.0,GRB.CONTINUOUS,u1.getName()));
-                    RHS.addTerm(1.0, model.addVar(0.0,1.0,0.0,GRB.CONTINUOUS,u2.getName()));
-                }
-                model.addConstr(LHS, GRB.LESS_EQUAL, RHS, i+"<="+(i+1));
-            }
-
-            Bid lowest = bidList.get(0);
-            Bid highest = bidList.get(bidList.size()-1);
-            GRBLinExpr LHS = new GRBLinExpr();
-            GRBLinExpr LHS2 = new GRBLinExpr();
-            for(Issue issue : issues){
-                ValueDiscrete v1 = (ValueDiscrete) lowest.getValue(issue);
-                ValueDiscrete v2 = (ValueDiscrete) highest.getValue(issue);
-
-                Uij u1 = getUij(issue.getNumber(), v1);
-                Uij u2 = getUij(issue.getNumber(), v2);
-
-                LHS.addTerm(1.0, model.addVar(0.0,1.0,0.0,GRB.CONTINUOUS, u1.getName()));
-                LHS2.addTerm(1.0,model.addVar(0.0,1.0,0.0,GRB.CONTINUOUS, u2.getName()));
-            }
-            model.addConstr(LHS, GRB.GREATER_EQUAL, 0.0, "minimum");
-            model.addConstr(LHS2,GRB.LESS_EQUAL, 1.0, "maximum");
-
-            model.optimize();
-            GRBVar[] vars = model.getVars();
-
-            for(int i=0; i<vars.length; i++){
-                GRBVar a = vars[i];
-                System.out.println(a.get(GRB.StringAttr.VarName) + " " + a.get(GRB.DoubleAttr.X));
-            }
-
-            Bid bid = userModel.getBidRanking().getRandomBid();
+        System.out.println("NUMBER OF Uij: " + codec.getValueIndex().size());
 
 
-            // Dispose of model and environment
-            model.dispose();
-            env.dispose();
-        } catch (GRBException e) {
-            e.printStackTrace();
+        ValueIndex valueIndex = codec.getValueIndex();
+        PreferenceEstimator estimator = PreferenceEstimator.create(valueIndex);
+        estimator.update(bidList);
+        if(!estimator.optimize()){
             System.out.println("FAILLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLLL");
         }
+        double[] utilities = estimator.getUtilities();
+        for(int j=0; j<utilities.length; j++){
+            System.out.println(valueIndex.name(j) + " " + utilities[j]);
+        }
+        estimator.dispose();
     }
 
     private Uij getUij(int i, ValueDiscrete value){
-        String s = i + value.getValue();
-        int j = indicies.get(s);
+        int j = codec.getValueIndex().indexOf(i-1, value);
         for(Uij uij : uoos){
             if(uij.getName().equals("U" + i + j)){
                 return uij;
@@ -220,31 +160,23 @@ public class LP extends AbstractNegotiationParty
 
     private Bid generateRandomBidAboveTarget()
     {
-        ArrayList<Bid> bids = new ArrayList<>();
-        Bid randomBid = generateRandomBid();
-        double util;
-        int i = 0;
-        // try 100 times to find a bid under the target utility
+        long[] ids = new long[N];
         for(int j=0; j<N; j++){
-            do
-            {
-                randomBid = generateRandomBid();
-                util = utilitySpace.getUtility(randomBid);
-            }
-            while (util < MINIMUM_TARGET && i++ < 100);
-            bids.add(randomBid);
+            ids[j] = utilityTable.randomAbove(MINIMUM_TARGET, rand);
         }
+        double[] oppUtils = new double[ids.length];
+        opponentModel.getUtilities(ids, ids.length, MultiOpponentModel.Aggregate.MIN, oppUtils);
 
-        Bid highestBid = randomBid;
+        long highestId = ids[ids.length-1];
         double oppUtil = 0;
-        for(Bid bid : bids){
-            if(getOppUtil(bid) > oppUtil){
-                oppUtil = getOppUtil(bid);
-                highestBid = bid;
+        for(int k=0; k<ids.length; k++){
+            if(oppUtils[k] > oppUtil){
+                oppUtil = oppUtils[k];
+                highestId = ids[k];
             }
         }
 
-        return highestBid;
+        return codec.getBid(highestId, utilitySpace.getDomain());
     }
 
     /**
@@ -256,22 +188,13 @@ public class LP extends AbstractNegotiationParty
         if (action instanceof Offer)
         {
             lastOffer = ((Offer) action).getBid();
-            numberOfBids++;
-
-
-            String bid = "Bid " + numberOfBids + " = ";
-            for(Issue issue : lastOffer.getIssues()){
-                ValueDiscrete valueDiscrete = (ValueDiscrete) lastOffer.getValue(issue);
-                bid += valueDiscrete.getValue() + ", ";
-                String s = issue.getNumber() + valueDiscrete.getValue();
-                table[issue.getNumber()-1][indicies.get(s)] = table[issue.getNumber()-1][indicies.get(s)] + 1;
-            }
+            opponentModel.update(sender, codec.intern(lastOffer));
 
-            //System.out.println(bid);
+            //System.out.println("Bid " + opponentModel.get(sender).getNumberOfBids() + " = " + lastOffer);
 
             for(Issue issue : lastOffer.getIssues()){
                 //System.out.print("ISSUE: " + issue.getNumber());
-                //printArr(table[issue.getNumber()-1]);
+                //printArr(opponentModel.get(sender).getFrequencies(issue.getNumber()-1));
             }
 
             getOppUtil(lastOffer);
@@ -288,77 +211,11 @@ public class LP extends AbstractNegotiationParty
     }
 
     public double getOppUtil(Bid lastOffer){
-        double oppUtil = 0;
-        for(Issue issue : lastOffer.getIssues()){
-            double v0 = getVo(issue, (ValueDiscrete) lastOffer.getValue(issue));
-            double wi = getDoubleU(issue.getNumber());
-            oppUtil += wi*v0;
-            //System.out.println("Vo: " + v0 + " wi " + wi);
-        }
-
+        double oppUtil = opponentModel.getUtility(lastOffer, MultiOpponentModel.Aggregate.MIN);
         System.out.println("OppUtil:  " + oppUtil);
         return oppUtil;
     }
 
-    public double getDoubleUHat(int issueNumber){
-        int issueIndex = issueNumber - 1;
-        int[] frequencies = table[issueIndex];
-
-        double what = 0;
-        for(int frequency : frequencies){
-            double freq = (double) frequency;
-            double time = (double) numberOfBids-1;
-
-            what += (freq*freq)/(time*time);
-        }
-
-        return what;
-    }
-
-    public double getDoubleU(int issueNumber){
-        double sum = 0;
-        for(Issue issue : utilitySpace.getDomain().getIssues()){
-            double whatj = getDoubleUHat(issue.getNumber());
-            sum += whatj;
-        }
-
-        double whati = getDoubleUHat(issueNumber);
-        double wi = whati/sum;
-        return wi;
-    }
-
-    public double getVo(Issue issue, ValueDiscrete valueDiscrete){
-        int[] optionFrequencies = table[issue.getNumber()-1];
-        String s = issue.getNumber() + valueDiscrete.getValue();
-        int valueIndex = indicies.get(s);
-        IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
-
-        int rank = 0;
-        for(int i=0; i<optionFrequencies.length; i++){
-            if(i!=valueIndex){
-                if(optionFrequencies[i] < optionFrequencies[valueIndex]){
-                    rank++;
-                }
-                if(optionFrequencies[i] == optionFrequencies[valueIndex]){
-                    Value vi = issueDiscrete.getValue(i);
-                    Value vv = issueDiscrete.getValue(valueIndex);
-                    if(vv.toString().toLowerCase().compareTo(vi.toString().toLowerCase()) > 0){
-                        rank++;
-                    }
-                }
-            }
-        }
-
-        int k = optionFrequencies.length;
-        rank = k - rank;
-
-        double kk = (double) k;
-        double rankr = (double) rank;
-        double v0 = (kk-rankr+1)/k;
-        //System.out.println("Vo of " + valueDiscrete.getValue() + " is: " + v0);
-        return v0;
-    }
-
     @Override
     public String getDescription()
     {
@@ -389,7 +246,7 @@ public class LP extends AbstractNegotiationParty
 
         public Uij(int i, String value){
             this.i = i;
-            this.j = indicies.get(i + value);
+            this.j = codec.getValueIndex().indexOf(i-1, new ValueDiscrete(value));
         }
 
         public int getI(){ return i; }
@@ -8,7 +8,6 @@ import genius.core.actions.EndNegotiation;
 import genius.core.actions.Offer;
 import genius.core.issue.Issue;
 import genius.core.issue.IssueDiscrete;
-import genius.core.issue.Value;
 import genius.core.issue.ValueDiscrete;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
@@ -29,15 +28,18 @@ import java.util.Random;
  */
 public class Lab4 extends AbstractNegotiationParty
 {
-    private static double MINIMUM_TARGET = 0.8;
-    private static double TARGET_UTILITY;
-    private static double THRESHOLD;
+    private static final double MINIMUM_TARGET = 0.8;
+    private double TARGET_UTILITY;
+    private double THRESHOLD;
     private Bid lastOffer;
-    int[][] table;
-    HashMap<String,Integer> indicies;
-    int numberOfBids;
-    private static int N = 10;
-    private static double tau = 0;
+    MultiOpponentModel opponentModel;
+    BidCodec codec;
+    //own utility of every bid, sorted
+    private UtilityTable utilityTable;
+    //the bid ranking, kept in sync with the user model
+    private RankingIndex ranking;
+    private static final int N = 10;
+    private double tau = 0;
     private Random rn;
 
     /**
@@ -47,7 +49,8 @@ public class Lab4 extends AbstractNegotiationParty
     public void init(NegotiationInfo info)
     {
         super.init(info);
-        rn = new Random();
+        //the party's generator, seeded for the session
+        rn = rand;
         AbstractUtilitySpace utilitySpace = info.getUtilitySpace();
 
         //UtilitySpace: domain and preference profile
@@ -55,9 +58,10 @@ public class Lab4 extends AbstractNegotiationParty
 
         //List of issues
         List<Issue> issues = additiveUtilitySpace.getDomain().getIssues();
-        table = new int[issues.size()][];
-        indicies = new HashMap<>();
-        numberOfBids = 0;
+        codec = new BidCodec(DomainCache.index(additiveUtilitySpace.getDomain()));
+        utilityTable = DomainCache.table(additiveUtilitySpace);
+        opponentModel = new MultiOpponentModel(codec);
+        ranking = new RankingIndex(codec, userModel.getBidRanking().getBidOrder());
 
         for (Issue issue : issues) {
             int issueNumber = issue.getNumber();
@@ -73,9 +77,6 @@ public class Lab4 extends AbstractNegotiationParty
             int counter = 0;
             for (ValueDiscrete valueDiscrete : issueDiscrete.getValues()) {
                 //System.out.println(valueDiscrete.getValue());
-
-                String s = issueNumber + valueDiscrete.getValue();
-                indicies.put(s,counter);
                 counter++;
                 //This gives the number of the value, no need to keep a HashMap!
                 //System.out.println("Evaluation(getValue): " + evaluatorDiscrete.getValue(valueDiscrete));
@@ -88,9 +89,6 @@ public class Lab4 extends AbstractNegotiationParty
             }
 
             //System.out.println("---------------------------------");
-
-            int issueIndex = issueNumber-1;
-            table[issueIndex] = new int[issueDiscrete.getValues().size()];
             //System.out.println("ISSUE: " + issueNumber + " SIZE: "+ issueDiscrete.getValues().size());
         }
 
@@ -141,13 +139,13 @@ public class Lab4 extends AbstractNegotiationParty
         //if we are the first to bid, then we generate a random bid
         //if we received and offer, we compare it to our reservation value
         if (lastOffer != null){
-            List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
-            if(!bidOrder.contains(lastOffer)){
+            if(!ranking.contains(lastOffer)){
                 userModel = user.elicitRank(lastOffer, userModel);
+                ranking.sync(userModel.getBidRanking().getBidOrder());
             }
 
-            int index = bidOrder.indexOf(lastOffer);
-            if(index >= bidOrder.size()*(1-tau)){
+            int index = ranking.rankOf(lastOffer);
+            if(index >= ranking.size()*(1-tau)){
                 return new Accept(getPartyId(), lastOffer);
             }
 
@@ -167,42 +165,33 @@ public class Lab4 extends AbstractNegotiationParty
             tau = tau + 0.01;
         }
 
-        List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
-        int max = bidOrder.size()-1;
-        int min = (int) Math.ceil((bidOrder.size()-1)*(1-tau));
+        int max = ranking.size()-1;
+        int min = (int) Math.ceil((ranking.size()-1)*(1-tau));
         int index = rn.nextInt(max - min + 1) + min;
 
-        Bid randomFromTopTau = bidOrder.get(index);
+        Bid randomFromTopTau = ranking.bidAt(index);
         return randomFromTopTau;
     }
 
     private Bid generateRandomBidAboveTarget()
     {
-        ArrayList<Bid> bids = new ArrayList<>();
-        Bid randomBid = generateRandomBid();
-        double util;
-        int i = 0;
-        // try 100 times to find a bid under the target utility
+        long[] ids = new long[N];
         for(int j=0; j<N; j++){
-            do
-            {
-                randomBid = generateRandomBid();
-                util = utilitySpace.getUtility(randomBid);
-            }
-            while (util < MINIMUM_TARGET && i++ < 100);
-            bids.add(randomBid);
+            ids[j] = utilityTable.randomAbove(MINIMUM_TARGET, rand);
         }
+        double[] oppUtils = new double[ids.length];
+        opponentModel.getUtilities(ids, ids.length, MultiOpponentModel.Aggregate.MIN, oppUtils);
 
-        Bid highestBid = randomBid;
+        long highestId = ids[ids.length-1];
         double oppUtil = 0;
-        for(Bid bid : bids){
-            if(getOppUtil(bid) > oppUtil){
-                oppUtil = getOppUtil(bid);
-                highestBid = bid;
+        for(int k=0; k<ids.length; k++){
+            if(oppUtils[k] > oppUtil){
+                oppUtil = oppUtils[k];
+                highestId = ids[k];
             }
         }
 
-        return highestBid;
+        return codec.getBid(highestId, utilitySpace.getDomain());
     }
 
     /**
@@ -214,22 +203,13 @@ public class Lab4 extends AbstractNegotiationParty
         if (action instanceof Offer)
         {
             lastOffer = ((Offer) action).getBid();
-            numberOfBids++;
-
-
-            String bid = "Bid " + numberOfBids + " = ";
-            for(Issue issue : lastOffer.getIssues()){
-                ValueDiscrete valueDiscrete = (ValueDiscrete) lastOffer.getValue(issue);
-                bid += valueDiscrete.getValue() + ", ";
-                String s = issue.getNumber() + valueDiscrete.getValue();
-                table[issue.getNumber()-1][indicies.get(s)] = table[issue.getNumber()-1][indicies.get(s)] + 1;
-            }
+            opponentModel.update(sender, codec.intern(lastOffer));
 
-            //System.out.println(bid);
+            //System.out.println("Bid " + opponentModel.get(sender).getNumberOfBids() + " = " + lastOffer);
 
             for(Issue issue : lastOffer.getIssues()){
                 //System.out.print("ISSUE: " + issue.getNumber());
-                //printArr(table[issue.getNumber()-1]);
+                //printArr(opponentModel.get(sender).getFrequencies(issue.getNumber()-1));
             }
 
             getOppUtil(lastOffer);
@@ -246,77 +226,11 @@ public class Lab4 extends AbstractNegotiationParty
     }
 
     public double getOppUtil(Bid lastOffer){
-        double oppUtil = 0;
-        for(Issue issue : lastOffer.getIssues()){
-            double v0 = getVo(issue, (ValueDiscrete) lastOffer.getValue(issue));
-            double wi = getDoubleU(issue.getNumber());
-            oppUtil += wi*v0;
-            //System.out.println("Vo: " + v0 + " wi " + wi);
-        }
-
+        double oppUtil = opponentModel.getUtility(lastOffer, MultiOpponentModel.Aggregate.MIN);
         System.out.println("OppUtil:  " + oppUtil);
         return oppUtil;
     }
 
-    public double getDoubleUHat(int issueNumber){
-        int issueIndex = issueNumber - 1;
-        int[] frequencies = table[issueIndex];
-
-        double what = 0;
-        for(int frequency : frequencies){
-            double freq = (double) frequency;
-            double time = (double) numberOfBids-1;
-
-            what += (freq*freq)/(time*time);
-        }
-
-        return what;
-    }
-
-    public double getDoubleU(int issueNumber){
-        double sum = 0;
-        for(Issue issue : utilitySpace.getDomain().getIssues()){
-            double whatj = getDoubleUHat(issue.getNumber());
-            sum += whatj;
-        }
-
-        double whati = getDoubleUHat(issueNumber);
-        double wi = whati/sum;
-        return wi;
-    }
-
-    public double getVo(Issue issue, ValueDiscrete valueDiscrete){
-        int[] optionFrequencies = table[issue.getNumber()-1];
-        String s = issue.getNumber() + valueDiscrete.getValue();
-        int valueIndex = indicies.get(s);
-        IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
-
-        int rank = 0;
-        for(int i=0; i<optionFrequencies.length; i++){
-            if(i!=valueIndex){
-                if(optionFrequencies[i] < optionFrequencies[valueIndex]){
-                    rank++;
-                }
-                if(optionFrequencies[i] == optionFrequencies[valueIndex]){
-                    Value vi = issueDiscrete.getValue(i);
-                    Value vv = issueDiscrete.getValue(valueIndex);
-                    if(vv.toString().toLowerCase().compareTo(vi.toString().toLowerCase()) > 0){
-                        rank++;
-                    }
-                }
-            }
-        }
-
-        int k = optionFrequencies.length;
-        rank = k - rank;
-
-        double kk = (double) k;
-        double rankr = (double) rank;
-        double v0 = (kk-rankr+1)/k;
-        //System.out.println("Vo of " + valueDiscrete.getValue() + " is: " + v0);
-        return v0;
-    }
-
     @Override
     public String getDescription()
     {
@@ -0,0 +1,160 @@
+package group12;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * One {@link OpponentModel} per sender, so in a multilateral session the offers of different
+ * opponents are not mixed into one model.
+ *
+ * Candidate bids are scored against all opponents at once: the score table of every opponent is taken
+ * once per batch and each bid costs issues times opponents array loads, whatever aggregate is asked for.
+ */
+public class MultiOpponentModel {
+    public enum Aggregate { MIN, MEAN, PRODUCT }
+
+    //batches of at least this many ids are scored in parallel, in chunks of this size
+    private static final int PARALLEL_BATCH = 4096;
+
+    private BidCodec codec;
+    //in order of the first offer, so aggregates are evaluated the same way every run
+    private LinkedHashMap<AgentID, OpponentModel> models;
+    //what is assumed about an opponent that has not offered anything yet
+    private OpponentModel prior;
+
+    public MultiOpponentModel(BidCodec codec){
+        this.codec = codec;
+        models = new LinkedHashMap<>();
+        prior = OpponentModel.create(codec);
+    }
+
+    public BidCodec getCodec(){
+        return codec;
+    }
+
+    /**
+     * Counts one offer of the sender.
+     */
+    public void update(AgentID sender, long id){
+        get(sender).update(id);
+    }
+
+    public void update(AgentID sender, Bid bid){
+        update(sender, codec.id(bid));
+    }
+
+    /**
+     * @return model of the sender, a new one if it did not offer before
+     */
+    public OpponentModel get(AgentID sender){
+        return models.computeIfAbsent(sender, s -> OpponentModel.create(codec));
+    }
+
+    public List<AgentID> getOpponents(){
+        return new ArrayList<>(models.keySet());
+    }
+
+    public int getNumberOfOpponents(){
+        return models.size();
+    }
+
+    public double getUtility(Bid bid, Aggregate aggregate){
+        return getUtility(codec.id(bid), aggregate);
+    }
+
+    /**
+     * @return aggregate of the estimated utilities of all opponents, the prior's before the first offer
+     */
+    public double getUtility(long id, Aggregate aggregate){
+        if(models.isEmpty()){
+            return prior.getUtility(id);
+        }
+        double[] utilities = new double[models.size()];
+        int o = 0;
+        for(OpponentModel model : models.values()){
+            utilities[o++] = model.getUtility(id);
+        }
+        return combine(utilities, aggregate);
+    }
+
+    /**
+     * @return mean score of every value over the opponents, by {@link ValueIndex} column, so the utility of a
+     * bid under these scores is the MEAN aggregate
+     */
+    public double[] getScores(){
+        if(models.isEmpty()){
+            return prior.getScores();
+        }
+        double[] scores = new double[codec.getValueIndex().size()];
+        for(OpponentModel model : models.values()){
+            double[] s = model.getScores();
+            for(int c=0; c<scores.length; c++){
+                scores[c] += s[c] / models.size();
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Scores the first count ids in one pass, utilities[k] gets the aggregate for ids[k]. Large batches are
+     * split over the common fork/join pool, so don't update the models meanwhile.
+     */
+    public void getUtilities(long[] ids, int count, Aggregate aggregate, double[] utilities){
+        double[][] scores;
+        if(models.isEmpty()){
+            scores = new double[][]{ prior.getScores() };
+        } else {
+            scores = new double[models.size()][];
+            int o = 0;
+            for(OpponentModel model : models.values()){
+                scores[o++] = model.getScores();
+            }
+        }
+
+        if(count < PARALLEL_BATCH){
+            score(scores, aggregate, ids, 0, count, utilities);
+            return;
+        }
+        int chunks = (count + PARALLEL_BATCH - 1) / PARALLEL_BATCH;
+        IntStream.range(0, chunks).parallel().forEach(c ->
+                score(scores, aggregate, ids, c * PARALLEL_BATCH, Math.min(count, (c+1) * PARALLEL_BATCH), utilities));
+    }
+
+    private void score(double[][] scores, Aggregate aggregate, long[] ids, int from, int to, double[] utilities){
+        double[] opponents = new double[scores.length];
+        for(int k=from; k<to; k++){
+            for(int o=0; o<scores.length; o++){
+                opponents[o] = codec.utility(ids[k], scores[o]);
+            }
+            utilities[k] = combine(opponents, aggregate);
+        }
+    }
+
+    private static double combine(double[] utilities, Aggregate aggregate){
+        switch(aggregate){
+            case MIN:
+                double min = Double.POSITIVE_INFINITY;
+                for(double u : utilities){
+                    min = Math.min(min, u);
+                }
+                return min;
+            case MEAN:
+                double sum = 0;
+                for(double u : utilities){
+                    sum += u;
+                }
+                return sum / utilities.length;
+            default:
+                double product = 1;
+                for(double u : utilities){
+                    product *= u;
+                }
+                return product;
+        }
+    }
+}
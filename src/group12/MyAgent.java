@@ -26,10 +26,13 @@ import genius.core.utility.EvaluatorDiscrete;
  */
 public class MyAgent extends AbstractNegotiationParty
 {
-    private static double MINIMUM_TARGET = 0.8;
-    private static double TARGET_UTILITY;
-    private static double THRESHOLD;
+    private static final double MINIMUM_TARGET = 0.8;
+    private double TARGET_UTILITY;
+    private double THRESHOLD;
     private Bid lastOffer;
+    private BidCodec codec;
+    //own utility of every bid, sorted
+    private UtilityTable utilityTable;
 
     /**
      * Initializes a new instance of the agent.
@@ -45,6 +48,8 @@ public class MyAgent extends AbstractNegotiationParty
 
         //List of issues
         List<Issue> issues = additiveUtilitySpace.getDomain().getIssues();
+        codec = new BidCodec(DomainCache.index(additiveUtilitySpace.getDomain()));
+        utilityTable = DomainCache.table(additiveUtilitySpace);
 
         for (Issue issue : issues) {
             int issueNumber = issue.getNumber();
@@ -124,17 +129,7 @@ public class MyAgent extends AbstractNegotiationParty
 
     private Bid generateRandomBidAboveTarget()
     {
-        Bid randomBid;
-        double util;
-        int i = 0;
-        // try 100 times to find a bid under the target utility
-        do
-        {
-            randomBid = generateRandomBid();
-            util = utilitySpace.getUtility(randomBid);
-        }
-        while (util < MINIMUM_TARGET && i++ < 100);
-        return randomBid;
+        return codec.getBid(utilityTable.randomAbove(MINIMUM_TARGET, rand), utilitySpace.getDomain());
     }
 
     /**
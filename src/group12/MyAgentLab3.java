@@ -26,13 +26,15 @@ import java.util.List;
  */
 public class MyAgentLab3 extends AbstractNegotiationParty
 {
-    private static double MINIMUM_TARGET = 0.8;
-    private static double TARGET_UTILITY;
-    private static double THRESHOLD;
+    private static final double MINIMUM_TARGET = 0.8;
+    private double TARGET_UTILITY;
+    private double THRESHOLD;
     private Bid lastOffer;
     private int[][] table;
     private AdditiveUtilitySpace additiveUtilitySpace;
-    private HashMap<String,Integer> indicies;
+    private BidCodec codec;
+    //own utility of every bid, sorted
+    private UtilityTable utilityTable;
 
     /**
      * Initializes a new instance of the agent.
@@ -50,7 +52,8 @@ public class MyAgentLab3 extends AbstractNegotiationParty
         List<Issue> issues = additiveUtilitySpace.getDomain().getIssues();
 
         table = new int[issues.size()][];
-        indicies = new HashMap<>();
+        codec = new BidCodec(DomainCache.index(additiveUtilitySpace.getDomain()));
+        utilityTable = DomainCache.table(additiveUtilitySpace);
 
         for (Issue issue : issues) {
             int issueNumber = issue.getNumber();
@@ -67,8 +70,6 @@ public class MyAgentLab3 extends AbstractNegotiationParty
             int counter = 0;
             for (ValueDiscrete valueDiscrete : issueDiscrete.getValues()) {
                 //System.out.println(valueDiscrete.getValue());
-                String s = issueNumber + valueDiscrete.getValue();
-                indicies.put(s,counter);
                 counter++;
 
                 //This gives the number of the value, no need to keep a HashMap!
@@ -140,17 +141,7 @@ public class MyAgentLab3 extends AbstractNegotiationParty
 
     private Bid generateRandomBidAboveTarget()
     {
-        Bid randomBid;
-        double util;
-        int i = 0;
-        // try 100 times to find a bid under the target utility
-        do
-        {
-            randomBid = generateRandomBid();
-            util = utilitySpace.getUtility(randomBid);
-        }
-        while (util < MINIMUM_TARGET && i++ < 100);
-        return randomBid;
+        return codec.getBid(utilityTable.randomAbove(MINIMUM_TARGET, rand), utilitySpace.getDomain());
     }
 
     /**
@@ -163,17 +154,12 @@ public class MyAgentLab3 extends AbstractNegotiationParty
         {
             lastOffer = ((Offer) action).getBid();
 
-            for(Issue issue : lastOffer.getIssues()){
-                Value value = lastOffer.getValue(issue);
-                //EvaluatorDiscrete evaluatorDiscrete = (EvaluatorDiscrete) additiveUtilitySpace.getEvaluator(issue.getNumber());
-
-                int issueIndex = issue.getNumber()-1;
-                //int valueIndex = evaluatorDiscrete.getValue((ValueDiscrete)value);
-
-                int valueIndex = indicies.get(issue.getNumber() + ((ValueDiscrete) value).getValue());
+            long id = codec.intern(lastOffer);
+            for(int issueIndex=0; issueIndex<table.length; issueIndex++){
+                int valueIndex = codec.code(id, issueIndex);
 
                 table[issueIndex][valueIndex]++;
-                //System.out.println("incremented table[" + issueIndex + "," + valueIndex+"] for isssue: " + issue.getName() + " value: " + ((ValueDiscrete) value).getValue());
+                //System.out.println("incremented table[" + issueIndex + "," + valueIndex+"]");
             }
 
             //Once we incremented the table, we calculate utility estimate
@@ -239,8 +225,8 @@ public class MyAgentLab3 extends AbstractNegotiationParty
         int iss = 0;
         for(Issue issue : bid.getIssues()){
             Value value = lastOffer.getValue(issue);
-            EvaluatorDiscrete evaluatorDiscrete = (EvaluatorDiscrete) additiveUtilitySpace.getEvaluator(issue.getNumber());
-            int valueIndex = evaluatorDiscrete.getValue((ValueDiscrete)value);
+            //the frequency table is by value, the evaluator gives the evaluation
+            int valueIndex = ((IssueDiscrete) issue).getValueIndex((ValueDiscrete) value);
             double v0 = getVo(issue,valueIndex);
             double weight = doubleUs[iss];
 
@@ -0,0 +1,53 @@
+package group12;
+
+/**
+ * Estimate of the opponent's utility function, learned from the bids it offers.
+ *
+ * The model is picked with the system property group12.opponent: "cumulative" (default), "window:&lt;offers&gt;"
+ * and "decay:&lt;factor&gt;" give a {@link FrequencyOpponentModel}, "bayes", "bayes:&lt;particles&gt;" or
+ * "bayes:&lt;particles&gt;:&lt;seconds per update&gt;" a {@link BayesianOpponentModel}.
+ */
+public interface OpponentModel {
+
+    /**
+     * Learns from one offer of the opponent, given by its {@link BidCodec} id.
+     */
+    void update(long id);
+
+    /**
+     * @return number of offers received
+     */
+    int getNumberOfBids();
+
+    /**
+     * @return estimated utility of the bid for the opponent
+     */
+    double getUtility(long id);
+
+    /**
+     * @return estimated share of every value in the opponent's utility, by {@link ValueIndex} column, so
+     * the utility of a bid is the sum of the scores of its values
+     */
+    double[] getScores();
+
+    static OpponentModel create(BidCodec codec){
+        String setting = System.getProperty("group12.opponent", "cumulative");
+        if(setting.equals("bayes")){
+            return new BayesianOpponentModel(codec);
+        }
+        if(setting.startsWith("bayes:")){
+            try{
+                String[] parts = setting.substring(6).split(":");
+                BayesianOpponentModel model = new BayesianOpponentModel(codec, Integer.parseInt(parts[0]));
+                if(parts.length > 1){
+                    model.setTimeBudget(Double.parseDouble(parts[1]));
+                }
+                return model;
+            } catch (IllegalArgumentException e) {
+                System.out.println("Bad group12.opponent " + setting + ", using the default particles: " + e);
+                return new BayesianOpponentModel(codec);
+            }
+        }
+        return FrequencyOpponentModel.create(codec);
+    }
+}
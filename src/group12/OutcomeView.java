@@ -0,0 +1,155 @@
+package group12;
+
+import genius.core.Bid;
+import genius.core.Domain;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The outcome space of a discrete domain without holding it: bids are made from their {@link BidCodec} id
+ * when asked for, and iterating counts through the ids digit by digit, so only the current bid exists.
+ *
+ * Whether a bid is known, i.e. in the ranking, is one bit per id, so the set of bids that can still be
+ * elicited costs an eighth of a byte per outcome instead of a Bid object and a hash entry.
+ */
+public class OutcomeView implements Iterable<Bid> {
+    private BidCodec codec;
+    private Domain domain;
+    //bit id % 64 of word id / 64 is set when the bid with that id is known
+    private long[] known;
+    private long numberOfKnown;
+
+    public OutcomeView(BidCodec codec, Domain domain){
+        if(codec.getNumberOfBids() > 64L * (Integer.MAX_VALUE - 8)){
+            throw new IllegalArgumentException("Outcome space too large for a bit per bid");
+        }
+        this.codec = codec;
+        this.domain = domain;
+        known = new long[(int) ((codec.getNumberOfBids() + 63) / 64)];
+    }
+
+    public BidCodec getCodec(){
+        return codec;
+    }
+
+    public long size(){
+        return codec.getNumberOfBids();
+    }
+
+    /**
+     * @return the bid with this id, the interned one if there is one, otherwise a new one that is not kept
+     */
+    public Bid getBid(long id){
+        Bid bid = codec.getBid(id);
+        return bid != null ? bid : codec.toBid(id, domain);
+    }
+
+    /**
+     * Marks the bid as known, it is interned so later lookups of its id give the same object.
+     */
+    public void setKnown(Bid bid){
+        setKnown(codec.intern(bid));
+    }
+
+    public void setKnown(long id){
+        long bit = 1L << id;
+        int word = (int) (id >>> 6);
+        if((known[word] & bit) == 0){
+            known[word] |= bit;
+            numberOfKnown++;
+        }
+    }
+
+    public boolean isKnown(long id){
+        return (known[(int) (id >>> 6)] & (1L << id)) != 0;
+    }
+
+    public long getNumberOfKnown(){
+        return numberOfKnown;
+    }
+
+    public long getNumberOfUnknown(){
+        return size() - numberOfKnown;
+    }
+
+    /**
+     * @return smallest id at or after from of a bid that is not known, -1 if there is none
+     */
+    public long nextUnknown(long from){
+        if(from < 0 || from >= size()){
+            return -1;
+        }
+        int word = (int) (from >>> 6);
+        long bits = ~known[word] & (-1L << from);
+        while(bits == 0){
+            if(++word == known.length){
+                return -1;
+            }
+            bits = ~known[word];
+        }
+        long id = ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+        return id < size() ? id : -1;
+    }
+
+    /**
+     * Streams all bids in id order.
+     */
+    @Override
+    public Iterator<Bid> iterator(){
+        return new Counter(false);
+    }
+
+    /**
+     * Streams the bids that are not known, in id order.
+     */
+    public Iterable<Bid> unknown(){
+        return () -> new Counter(true);
+    }
+
+    //counts through the ids with one digit per issue, skipping known bids if asked to
+    private class Counter implements Iterator<Bid> {
+        private boolean skipKnown;
+        private long next;
+        //value index of every issue of the bid with id next
+        private int[] digits;
+
+        Counter(boolean skipKnown){
+            this.skipKnown = skipKnown;
+            next = skipKnown ? nextUnknown(0) : (size() > 0 ? 0 : -1);
+            digits = codec.decode(Math.max(next, 0));
+        }
+
+        @Override
+        public boolean hasNext(){
+            return next >= 0;
+        }
+
+        @Override
+        public Bid next(){
+            if(next < 0){
+                throw new NoSuchElementException();
+            }
+            Bid bid = codec.getBid(next);
+            if(bid == null){
+                bid = codec.toBid(digits, domain);
+            }
+            advance();
+            return bid;
+        }
+
+        private void advance(){
+            long id = skipKnown ? nextUnknown(next + 1) : (next + 1 < size() ? next + 1 : -1);
+            if(id == next + 1){
+                //add one with carry, issue 0 is the lowest digit
+                ValueIndex index = codec.getValueIndex();
+                for(int i=0; i<digits.length && ++digits[i] == index.getNumberOfValues(i); i++){
+                    digits[i] = 0;
+                }
+            } else if(id >= 0){
+                digits = codec.decode(id);
+            }
+            next = id;
+        }
+    }
+}
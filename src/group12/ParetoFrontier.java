@@ -0,0 +1,217 @@
+package group12;
+
+import java.util.Arrays;
+
+/**
+ * Pareto frontier of a fixed set of candidate bids over (own utility, estimated opponent utility), both
+ * additive in per-value scores indexed by {@link ValueIndex} column.
+ *
+ * The candidates are kept sorted by own utility from high to low, and the frontier is the staircase of
+ * candidates whose opponent utility beats every candidate before them. That staircase up to some position
+ * only depends on the candidates up to there, so when new opponent scores only change a few values, only
+ * the candidates holding one of those values are re-scored and the frontier is rebuilt from the first of
+ * them on. New own scores re-sort everything.
+ *
+ * The best bid for the opponent above an own target is the last frontier point above the target, found by
+ * binary search. The Nash point is cached per update.
+ */
+public class ParetoFrontier {
+    private BidCodec codec;
+    private long[] candidates;
+
+    private double[] ownScores;
+    private double[] opponentScores;
+    //candidate ids and utilities by position, in decreasing order of own utility
+    private long[] ids;
+    private double[] own;
+    private double[] opponent;
+    //positions of the candidates holding each column, column c is columnStart[c] .. columnStart[c+1]-1
+    private int[] columnStart;
+    private int[] columnPositions;
+
+    //positions on the frontier, increasing, with increasing opponent utility
+    private int[] frontier;
+    private int frontierSize;
+    private int nash = -1;
+    //mark of the positions re-scored in the current update
+    private int[] marks;
+    private int stamp;
+
+    public ParetoFrontier(BidCodec codec, long[] candidates){
+        this.codec = codec;
+        this.candidates = candidates.clone();
+        frontier = new int[candidates.length];
+        marks = new int[candidates.length];
+    }
+
+    /**
+     * Brings the frontier in line with new estimates, both indexed by {@link ValueIndex} column.
+     */
+    public void update(double[] ownScores, double[] opponentScores){
+        if(this.ownScores == null || !Arrays.equals(this.ownScores, ownScores)){
+            this.ownScores = ownScores.clone();
+            this.opponentScores = opponentScores.clone();
+            sort();
+            for(int p=0; p<ids.length; p++){
+                opponent[p] = codec.utility(ids[p], opponentScores);
+            }
+            rebuild(0);
+            return;
+        }
+
+        //re-score only the candidates holding a changed value
+        stamp++;
+        int first = ids.length;
+        for(int c=0; c<opponentScores.length; c++){
+            if(opponentScores[c] == this.opponentScores[c]){
+                continue;
+            }
+            for(int k=columnStart[c]; k<columnStart[c+1]; k++){
+                int p = columnPositions[k];
+                if(marks[p] != stamp){
+                    marks[p] = stamp;
+                    opponent[p] = codec.utility(ids[p], opponentScores);
+                    first = Math.min(first, p);
+                }
+            }
+        }
+        this.opponentScores = opponentScores.clone();
+        if(first < ids.length){
+            rebuild(first);
+        }
+    }
+
+    public int size(){
+        return candidates.length;
+    }
+
+    public int getFrontierSize(){
+        return frontierSize;
+    }
+
+    /**
+     * @return id of the k-th frontier bid, from the highest to the lowest own utility
+     */
+    public long getFrontierId(int k){
+        return ids[frontier[k]];
+    }
+
+    /**
+     * @return id of the bid with the highest opponent utility among the ones with an own utility above
+     * target, -1 if no bid is above target
+     */
+    public long bestResponse(double target){
+        //number of positions above target
+        int lo = 0;
+        int hi = own.length;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(own[mid] > target){
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int above = lo;
+
+        //last frontier point before that
+        lo = 0;
+        hi = frontierSize;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(frontier[mid] < above){
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo == 0 ? -1 : ids[frontier[lo-1]];
+    }
+
+    /**
+     * @return id of the bid with the highest product of own and opponent utility, -1 without candidates
+     */
+    public long getNash(){
+        return nash < 0 ? -1 : ids[nash];
+    }
+
+    public double getOwnUtility(long id){
+        return codec.utility(id, ownScores);
+    }
+
+    public double getOpponentUtility(long id){
+        return codec.utility(id, opponentScores);
+    }
+
+    //orders the candidates by own utility and indexes them by column
+    private void sort(){
+        int n = candidates.length;
+        double[] utilities = new double[n];
+        Integer[] order = new Integer[n];
+        for(int k=0; k<n; k++){
+            utilities[k] = codec.utility(candidates[k], ownScores);
+            order[k] = k;
+        }
+        Arrays.sort(order, (a,b) -> Double.compare(utilities[b], utilities[a]));
+
+        ids = new long[n];
+        own = new double[n];
+        opponent = new double[n];
+        for(int p=0; p<n; p++){
+            ids[p] = candidates[order[p]];
+            own[p] = utilities[order[p]];
+        }
+
+        int columns = ownScores.length;
+        int issues = codec.getIssueCount();
+        columnStart = new int[columns+1];
+        columnPositions = new int[n * issues];
+        for(int p=0; p<n; p++){
+            for(int i=0; i<issues; i++){
+                columnStart[codec.column(ids[p], i) + 1]++;
+            }
+        }
+        for(int c=0; c<columns; c++){
+            columnStart[c+1] += columnStart[c];
+        }
+        int[] next = Arrays.copyOf(columnStart, columns);
+        for(int p=0; p<n; p++){
+            for(int i=0; i<issues; i++){
+                columnPositions[next[codec.column(ids[p], i)]++] = p;
+            }
+        }
+    }
+
+    //keeps the frontier points before position first and scans the rest again
+    private void rebuild(int first){
+        int lo = 0;
+        int hi = frontierSize;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(frontier[mid] < first){
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        frontierSize = lo;
+
+        double best = frontierSize == 0 ? Double.NEGATIVE_INFINITY : opponent[frontier[frontierSize-1]];
+        for(int p=first; p<ids.length; p++){
+            if(opponent[p] > best){
+                best = opponent[p];
+                frontier[frontierSize++] = p;
+            }
+        }
+
+        nash = -1;
+        double product = Double.NEGATIVE_INFINITY;
+        for(int k=0; k<frontierSize; k++){
+            int p = frontier[k];
+            if(own[p] * opponent[p] > product){
+                product = own[p] * opponent[p];
+                nash = p;
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package group12;
+
+import genius.core.Bid;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Estimates the utility of every issue value from the bid ranking by solving the ranking LP:
+ * maximize epsilon such that every bid in the ranking is at least epsilon better than the one before it,
+ * with all value utilities in [0,1].
+ *
+ * The solver is picked with the system property group12.solver, "java" uses the embedded simplex and
+ * "gurobi" uses Gurobi. Without it Gurobi is used when it can be loaded and licensed, and the simplex otherwise;
+ * after Gurobi failed once the JVM goes straight to the simplex.
+ */
+public interface PreferenceEstimator {
+    //cleared when Gurobi fails to load or start, so later sessions don't try again
+    AtomicBoolean GUROBI_AVAILABLE = new AtomicBoolean(true);
+
+    enum Status { NOT_SOLVED, OPTIMAL, TIME_LIMIT, FAILED }
+
+    /**
+     * Brings the estimator in line with the given ranking.
+     *
+     * @return false if the ranking is the one of the last optimal solve and there is nothing to re-optimize,
+     * after a solve that ran out of time or failed it stays true until a solve succeeds
+     */
+    boolean update(List<Bid> bidList);
+
+    /**
+     * Solves the LP for the current ranking. The values are only replaced when the solve was optimal,
+     * otherwise the last estimate is kept.
+     */
+    boolean optimize();
+
+    /**
+     * Caps the following solves at the given number of seconds, infinity for no cap. A solve that hits the
+     * cap returns false and keeps the last estimate.
+     */
+    void setTimeLimit(double seconds);
+
+    /**
+     * @return outcome of the last solve
+     */
+    Status getStatus();
+
+    /**
+     * @return wall clock seconds spent in the last solve
+     */
+    double getSolveTime();
+
+    /**
+     * @return estimated utility per value, indexed by the column of the value in the {@link ValueIndex}
+     */
+    double[] getUtilities();
+
+    /**
+     * Replaces the current estimate, for instance by one from an earlier session. The next optimal solve
+     * overwrites it.
+     */
+    void setUtilities(double[] utilities);
+
+    void dispose();
+
+    static PreferenceEstimator create(ValueIndex index){
+        String solver = System.getProperty("group12.solver");
+        if("gurobi".equals(solver) || (solver == null && GUROBI_AVAILABLE.get())){
+            try{
+                return new GurobiEstimator(index);
+            } catch (Exception | LinkageError e) {
+                //no gurobi.jar, native library or license on this machine
+                if(GUROBI_AVAILABLE.getAndSet(false)){
+                    System.out.println("Gurobi not available, using the simplex estimator: " + e);
+                }
+            }
+        }
+        return new SimplexEstimator(index);
+    }
+}
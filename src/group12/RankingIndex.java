@@ -0,0 +1,237 @@
+package group12;
+
+import genius.core.Bid;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The bid ranking as an order statistic tree, so the rank of a bid, the bid at a rank, whether a bid is
+ * ranked and inserting a bid all take O(log n) instead of a scan of the bid order.
+ *
+ * The tree is a treap keyed implicitly by position: every node knows the size of its subtree, so the bid at
+ * a rank is found on the way down and the rank of a node on the way up through its parents. A hash table
+ * from {@link BidCodec} id to node finds the node of a bid. Nodes live in arrays, node 0 stands for no node.
+ *
+ * sync() brings the index in line with a new bid order after elicitation: the bids that came in are found by
+ * binary search on the first position where the index and the list differ, so keeping up costs O(log^2 n)
+ * per new bid rather than a rebuild.
+ */
+public class RankingIndex {
+    private BidCodec codec;
+    private Random random = new Random(0);
+
+    private int root;
+    private int count;
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int[] parent = new int[16];
+    private int[] size = new int[16];
+    private int[] priority = new int[16];
+    private long[] ids = new long[16];
+    private Bid[] bids = new Bid[16];
+    private HashMap<Long, Integer> nodes = new HashMap<>();
+
+    //the two halves of the last split
+    private int splitLeft;
+    private int splitRight;
+
+    public RankingIndex(BidCodec codec){
+        this.codec = codec;
+    }
+
+    public RankingIndex(BidCodec codec, List<Bid> bidOrder){
+        this(codec);
+        sync(bidOrder);
+    }
+
+    /**
+     * Brings the index in line with the bid order, from low to high. Bids inserted since the last sync are
+     * added where they are; if bids were removed, or the lowest or highest bid is not where the index has it,
+     * the index is built again.
+     */
+    public void sync(List<Bid> bidOrder){
+        if(bidOrder.size() < count){
+            rebuild(bidOrder);
+            return;
+        }
+        while(count < bidOrder.size()){
+            //the index matches the list before the first new bid and not from there on
+            int lo = 0;
+            int hi = count;
+            while(lo < hi){
+                int mid = (lo + hi) >>> 1;
+                if(idAt(mid) == codec.id(bidOrder.get(mid))){
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            Bid bid = bidOrder.get(lo);
+            if(contains(bid)){
+                //not an insertion
+                rebuild(bidOrder);
+                return;
+            }
+            insert(lo, bid);
+        }
+        if(count > 0 && (idAt(0) != codec.id(bidOrder.get(0)) || idAt(count-1) != codec.id(bidOrder.get(count-1)))){
+            rebuild(bidOrder);
+        }
+    }
+
+    public int size(){
+        return count;
+    }
+
+    public boolean contains(Bid bid){
+        return nodes.containsKey(codec.id(bid));
+    }
+
+    /**
+     * @return position of the bid in the ranking from low to high, -1 if it is not ranked
+     */
+    public int rankOf(Bid bid){
+        Integer node = nodes.get(codec.id(bid));
+        if(node == null){
+            return -1;
+        }
+        int rank = size[left[node]];
+        for(int x=node; parent[x] != 0; x=parent[x]){
+            if(right[parent[x]] == x){
+                rank += size[left[parent[x]]] + 1;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @return bid at this position in the ranking from low to high
+     */
+    public Bid bidAt(int rank){
+        return bids[nodeAt(rank)];
+    }
+
+    public long idAt(int rank){
+        return ids[nodeAt(rank)];
+    }
+
+    /**
+     * Puts the bid at this position, the bids from there on move up by one.
+     */
+    public void insert(int rank, Bid bid){
+        if(rank < 0 || rank > count){
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + count);
+        }
+        long id = codec.id(bid);
+        if(nodes.containsKey(id)){
+            throw new IllegalArgumentException("Bid is ranked already: " + bid);
+        }
+        int node = newNode(id, bid);
+        split(root, rank);
+        int rest = splitRight;
+        root = merge(merge(splitLeft, node), rest);
+        parent[root] = 0;
+    }
+
+    private void rebuild(List<Bid> bidOrder){
+        root = 0;
+        count = 0;
+        nodes.clear();
+        Arrays.fill(bids, null);
+        for(Bid bid : bidOrder){
+            if(!contains(bid)){
+                insert(count, bid);
+            }
+        }
+    }
+
+    private int nodeAt(int rank){
+        if(rank < 0 || rank >= count){
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + count);
+        }
+        int x = root;
+        while(true){
+            int before = size[left[x]];
+            if(rank < before){
+                x = left[x];
+            } else if(rank == before){
+                return x;
+            } else {
+                rank -= before + 1;
+                x = right[x];
+            }
+        }
+    }
+
+    private int newNode(long id, Bid bid){
+        int node = ++count;
+        if(node == size.length){
+            int length = 2 * size.length;
+            left = Arrays.copyOf(left, length);
+            right = Arrays.copyOf(right, length);
+            parent = Arrays.copyOf(parent, length);
+            size = Arrays.copyOf(size, length);
+            priority = Arrays.copyOf(priority, length);
+            ids = Arrays.copyOf(ids, length);
+            bids = Arrays.copyOf(bids, length);
+        }
+        left[node] = 0;
+        right[node] = 0;
+        parent[node] = 0;
+        size[node] = 1;
+        priority[node] = random.nextInt();
+        ids[node] = id;
+        bids[node] = bid;
+        nodes.put(id, node);
+        return node;
+    }
+
+    //splits the tree at x into the first k bids and the rest, in splitLeft and splitRight
+    private void split(int x, int k){
+        if(x == 0){
+            splitLeft = 0;
+            splitRight = 0;
+            return;
+        }
+        if(size[left[x]] < k){
+            split(right[x], k - size[left[x]] - 1);
+            right[x] = splitLeft;
+            pull(x);
+            splitLeft = x;
+        } else {
+            split(left[x], k);
+            left[x] = splitRight;
+            pull(x);
+            splitRight = x;
+        }
+        parent[x] = 0;
+    }
+
+    //tree with the bids of a followed by those of b
+    private int merge(int a, int b){
+        if(a == 0 || b == 0){
+            return a == 0 ? b : a;
+        }
+        if(priority[a] > priority[b]){
+            right[a] = merge(right[a], b);
+            pull(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        pull(b);
+        return b;
+    }
+
+    private void pull(int x){
+        size[x] = 1 + size[left[x]] + size[right[x]];
+        if(left[x] != 0){
+            parent[left[x]] = x;
+        }
+        if(right[x] != 0){
+            parent[right[x]] = x;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package group12;
+
+import genius.core.Bid;
+
+import java.util.List;
+
+/**
+ * Constraint matrix of the ranking LP, built in one pass over the ranking and shared by the solver backends.
+ *
+ * The columns are the ones of the {@link ValueIndex} with epsilon as the last column. Pair row k is
+ * epsilon + U(b_k) - U(b_k+1) <= 0 stored in compressed row form, a value both bids have cancels out and is
+ * left out, so neighbouring bids that differ in a few issues give rows with only a few entries.
+ */
+public class RankingLP {
+    private ValueIndex index;
+    private int epsilon;
+    //value column of every issue for every bid of the ranking
+    private int[][] bids;
+    private int rows;
+    //entries of row k are rowStart[k] .. rowStart[k+1]-1
+    private int[] rowStart;
+    private int[] columns;
+    private double[] coefficients;
+
+    public RankingLP(ValueIndex index){
+        this.index = index;
+        epsilon = index.size();
+    }
+
+    public void build(List<Bid> bidList){
+        int issues = index.getIssueCount();
+        int size = bidList.size();
+        bids = new int[size][];
+        rows = Math.max(0, size-1);
+        rowStart = new int[rows+1];
+        columns = new int[rows * (2*issues+1)];
+        coefficients = new double[columns.length];
+
+        int entries = 0;
+        for(int k=0; k<size; k++){
+            Bid bid = bidList.get(k);
+            int[] b = new int[issues];
+            for(int i=0; i<issues; i++){
+                b[i] = index.column(bid, i);
+            }
+            bids[k] = b;
+
+            if(k > 0){
+                int[] a = bids[k-1];
+                columns[entries] = epsilon;
+                coefficients[entries++] = 1.0;
+                for(int i=0; i<issues; i++){
+                    if(a[i] != b[i]){
+                        columns[entries] = a[i];
+                        coefficients[entries++] = 1.0;
+                        columns[entries] = b[i];
+                        coefficients[entries++] = -1.0;
+                    }
+                }
+                rowStart[k] = entries;
+            }
+        }
+    }
+
+    public ValueIndex getValueIndex(){
+        return index;
+    }
+
+    /**
+     * @return number of columns, the values and epsilon
+     */
+    public int getNumberOfColumns(){
+        return epsilon + 1;
+    }
+
+    public int getEpsilon(){
+        return epsilon;
+    }
+
+    public int getNumberOfBids(){
+        return bids.length;
+    }
+
+    /**
+     * @return value columns of the k-th bid of the ranking
+     */
+    public int[] getBid(int k){
+        return bids[k];
+    }
+
+    public int getRows(){
+        return rows;
+    }
+
+    public int getNumberOfEntries(){
+        return rowStart[rows];
+    }
+
+    public int rowStart(int row){
+        return rowStart[row];
+    }
+
+    public int rowEnd(int row){
+        return rowStart[row+1];
+    }
+
+    public int[] getColumns(){
+        return columns;
+    }
+
+    public double[] getCoefficients(){
+        return coefficients;
+    }
+
+    /**
+     * @return left hand side of the row for the solution x, positive means the pair is violated
+     */
+    public double activity(int row, double[] x){
+        double sum = 0.0;
+        for(int p=rowStart[row]; p<rowStart[row+1]; p++){
+            sum += coefficients[p] * x[columns[p]];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,179 @@
+package group12;
+
+import genius.core.AgentID;
+import genius.core.persistent.PersistentDataContainer;
+import genius.core.persistent.PersistentDataType;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What earlier sessions learned, kept in the Genius persistent data so a repeated pairing doesn't start
+ * from nothing.
+ *
+ * Every entry is a byte array keyed by domain/profile, for the preference estimate, or by
+ * domain/profile/opponent name, for the value frequencies of that opponent. An entry holds the number of
+ * values of every issue followed by a float per value, so it is only used when the domain still matches.
+ * Starting a session only holds on to the map Genius hands over, an entry is read and decoded when it is
+ * asked for, so the cost of loading doesn't grow with what is stored. Only the MAX_ENTRIES most recently used
+ * entries are saved, which bounds the size. Nothing is kept unless the party runs with SERIALIZABLE
+ * persistent data.
+ */
+public class SessionMemory {
+    private static final int MAX_ENTRIES = 64;
+    //what an earlier session learned about an opponent counts as this many offers
+    private static final double PRIOR_OFFERS = 10;
+
+    private PersistentDataContainer data;
+    private BidCodec codec;
+    private String session;
+    //entries of earlier sessions as Genius handed them over, least recently used first
+    private Map<?, ?> loaded;
+    //entries read or written in this session, least recently used first
+    private LinkedHashMap<String, byte[]> entries;
+
+    public SessionMemory(PersistentDataContainer data, BidCodec codec, String domain, String profile){
+        this.data = data;
+        this.codec = codec;
+        session = domain + "/" + profile;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        loaded = isEnabled() && data.get() instanceof Map ? (Map<?, ?>) data.get() : Collections.emptyMap();
+    }
+
+    /**
+     * @return false if the persistent data can't be written, then nothing is remembered
+     */
+    public boolean isEnabled(){
+        return data != null && data.getPersistentDataType() == PersistentDataType.SERIALIZABLE;
+    }
+
+    /**
+     * @return value utilities estimated in the last session with this profile, null if there is none
+     */
+    public double[] loadEstimate(){
+        return decode(get("estimate/" + session));
+    }
+
+    public void storeEstimate(double[] utilities){
+        if(utilities == null){
+            return;
+        }
+        entries.put("estimate/" + session, encode(utilities));
+    }
+
+    /**
+     * Starts the model of the sender from the value frequencies seen in earlier sessions with it. Only
+     * frequency models are remembered, others are left alone.
+     */
+    public void restoreOpponent(AgentID sender, OpponentModel model){
+        double[] shares = decode(get(opponentKey(sender)));
+        if(shares == null || !(model instanceof FrequencyOpponentModel)){
+            return;
+        }
+        ((FrequencyOpponentModel) model).addPrior(shares, PRIOR_OFFERS);
+    }
+
+    /**
+     * Remembers the value frequencies of every opponent, as the share of each value within its issue.
+     */
+    public void storeOpponents(MultiOpponentModel opponents){
+        ValueIndex index = codec.getValueIndex();
+        for(AgentID sender : opponents.getOpponents()){
+            OpponentModel model = opponents.get(sender);
+            if(!(model instanceof FrequencyOpponentModel) || model.getNumberOfBids() == 0){
+                continue;
+            }
+            double[] shares = new double[index.size()];
+            for(int i=0; i<index.getIssueCount(); i++){
+                double[] frequencies = ((FrequencyOpponentModel) model).getFrequencies(i);
+                double sum = 0;
+                for(double f : frequencies){
+                    sum += f;
+                }
+                for(int v=0; v<frequencies.length; v++){
+                    shares[index.offset(i) + v] = frequencies[v] / sum;
+                }
+            }
+            entries.put(opponentKey(sender), encode(shares));
+        }
+    }
+
+    /**
+     * Hands the entries to Genius to be saved for the next session.
+     */
+    public void save(){
+        if(!isEnabled()){
+            return;
+        }
+        LinkedHashMap<String, byte[]> saved = new LinkedHashMap<>();
+        for(Map.Entry<?, ?> entry : loaded.entrySet()){
+            if(entry.getKey() instanceof String && entry.getValue() instanceof byte[] && !entries.containsKey(entry.getKey())){
+                saved.put((String) entry.getKey(), (byte[]) entry.getValue());
+            }
+        }
+        //the entries of this session are the most recently used
+        saved.putAll(entries);
+        Iterator<String> eldest = saved.keySet().iterator();
+        while(saved.size() > MAX_ENTRIES){
+            eldest.next();
+            eldest.remove();
+        }
+        data.put(saved);
+    }
+
+    //entry of this or an earlier session, null if there is none
+    private byte[] get(String key){
+        byte[] bytes = entries.get(key);
+        if(bytes == null && loaded.get(key) instanceof byte[]){
+            bytes = (byte[]) loaded.get(key);
+            entries.put(key, bytes);
+        }
+        return bytes;
+    }
+
+    private String opponentKey(AgentID sender){
+        //the name without the "@n" serial, so the same agent in a later session has the same key
+        return "opponent/" + session + "/" + (sender == null ? null : sender.getName());
+    }
+
+    private byte[] encode(double[] values){
+        ValueIndex index = codec.getValueIndex();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 * index.getIssueCount() + 4 * values.length);
+        buffer.putInt(index.getIssueCount());
+        for(int i=0; i<index.getIssueCount(); i++){
+            buffer.putInt(index.getNumberOfValues(i));
+        }
+        for(double value : values){
+            buffer.putFloat((float) value);
+        }
+        return buffer.array();
+    }
+
+    //null if there is no entry or it was written for a different domain
+    private double[] decode(byte[] bytes){
+        if(bytes == null){
+            return null;
+        }
+        ValueIndex index = codec.getValueIndex();
+        if(bytes.length != 4 + 4 * index.getIssueCount() + 4 * index.size()){
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if(buffer.getInt() != index.getIssueCount()){
+            return null;
+        }
+        for(int i=0; i<index.getIssueCount(); i++){
+            if(buffer.getInt() != index.getNumberOfValues(i)){
+                return null;
+            }
+        }
+        double[] values = new double[index.size()];
+        for(int c=0; c<values.length; c++){
+            values[c] = buffer.getFloat();
+        }
+        return values;
+    }
+}
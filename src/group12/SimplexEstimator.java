@@ -0,0 +1,436 @@
+package group12;
+
+import genius.core.Bid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pure Java backend of the {@link PreferenceEstimator}, so the agents run without Gurobi.
+ *
+ * The ranking LP has one column per issue value plus epsilon but one row per pair of neighbouring bids,
+ * and at the optimum only a handful of those rows are tight. So the pair rows are generated lazily: the
+ * tableau starts with just the bounds, and every round the most violated pair rows are added and the
+ * tableau is re-optimized with dual simplex, which stays warm because adding a row keeps the costs
+ * optimal. The tableau is the condensed one (rows x columns, slacks are not stored), so it stays a few
+ * dozen rows by a few dozen columns even for rankings of thousands of bids.
+ *
+ * The tableau is also kept from one solve to the next. When bids were inserted into the ranking, the rows of
+ * pairs that are no longer neighbours stay in it: with c inserted between a and b, the new rows
+ * epsilon + U(a) - U(c) <= 0 and epsilon + U(c) - U(b) <= 0 add up to epsilon + U(a) - U(b) <= -epsilon, so
+ * the old row can't change the optimum. Only the pairs of the inserted bids are checked and added, and the
+ * dual simplex goes on from the last basis. Any other change of the ranking starts from scratch.
+ */
+public class SimplexEstimator implements PreferenceEstimator {
+    private static final double TOLERANCE = 1e-9;
+    //lower bound on the number of pair rows added per round
+    private static final int MIN_BATCH = 10;
+    //after this many pivots without progress Bland's rule is used, which can't cycle
+    private static final int DEGENERATE_PIVOTS = 50;
+
+    //the value columns are the ones of the index, epsilon is the last column
+    private int epsilon;
+    private ArrayList<Bid> bids;
+    private double[] utilities;
+    private double timeLimit = Double.POSITIVE_INFINITY;
+    //System.nanoTime() at which the running solve gives up
+    private long deadline;
+    private Status status = Status.NOT_SOLVED;
+    private double solveTime;
+    //the ranking changed since the last optimal solve
+    private boolean dirty;
+
+    //pair rows of the ranking, and which of them are in the tableau
+    private RankingLP lp;
+    private boolean[] active;
+    //the tableau is dual feasible for the rows in it, so the next solve can go on from it
+    private boolean warm;
+    //the highest bid changed since the last solve, U(highest) <= 1 needs a row for the new one
+    private boolean newMaximum;
+
+    //condensed tableau, row i is basic_i = rhs[i] - sum_j tableau[i][j] * nonbasic_j
+    private int n;
+    private int rows;
+    private double[][] tableau;
+    private double[] rhs;
+    private double[] cost;
+    //variable held by each row and column: 0..epsilon are the structural ones, the rest are slacks
+    private int[] rowVar;
+    private int[] colVar;
+    private int slacks;
+    //row of every structural variable when it is basic, -1-column when it is not
+    private int[] position;
+
+    public SimplexEstimator(ValueIndex index){
+        lp = new RankingLP(index);
+        epsilon = lp.getEpsilon();
+        n = lp.getNumberOfColumns();
+        utilities = new double[epsilon];
+    }
+
+    /**
+     * If the ranking is the old one with bids inserted, the tableau is kept for the next solve.
+     */
+    @Override
+    public boolean update(List<Bid> bidList) {
+        if(bids != null && bids.size() == bidList.size()){
+            return dirty;
+        }
+        dirty = true;
+        int[] previous = warm ? previousPositions(bidList) : null;
+        bids = new ArrayList<>(bidList);
+        lp.build(bids);
+        boolean[] carried = new boolean[lp.getRows()];
+        if(previous != null){
+            //a pair keeps its row if both bids were neighbours before
+            int live = n + 1;
+            for(int k=0; k<carried.length; k++){
+                carried[k] = previous[k] >= 0 && previous[k+1] == previous[k] + 1 && active[previous[k]];
+                live += carried[k] ? 1 : 0;
+            }
+            newMaximum |= previous[previous.length-1] < 0;
+            //start from scratch once most of the tableau is rows that are no longer needed
+            warm = rows - live <= live;
+        } else {
+            warm = false;
+        }
+        active = carried;
+        return true;
+    }
+
+    @Override
+    public boolean optimize() {
+        if(bids == null){
+            return false;
+        }
+        long start = System.nanoTime();
+        deadline = Double.isInfinite(timeLimit) ? Long.MAX_VALUE : start + (long) (timeLimit * 1e9);
+        boolean optimal;
+        if(warm){
+            if(newMaximum){
+                addMaximum();
+            }
+            optimal = dual();
+        } else {
+            Arrays.fill(active, false);
+            reset();
+            optimal = primal();
+            //primal simplex only leaves the tableau dual feasible once it is done
+            warm = optimal;
+        }
+        newMaximum = false;
+
+        double[] x = new double[n];
+        while(optimal){
+            solution(x);
+            if(addViolated(x) == 0){
+                break;
+            }
+            optimal = dual();
+        }
+        solveTime = (System.nanoTime() - start) / 1e9;
+        if(!optimal){
+            status = System.nanoTime() >= deadline ? Status.TIME_LIMIT : Status.FAILED;
+            //dual simplex stopped by the clock still has a dual feasible tableau and picks up from there
+            warm = warm && status == Status.TIME_LIMIT;
+            return false;
+        }
+
+        System.arraycopy(x, 0, utilities, 0, epsilon);
+        status = Status.OPTIMAL;
+        dirty = false;
+        return true;
+    }
+
+    @Override
+    public void setTimeLimit(double seconds){
+        timeLimit = seconds;
+    }
+
+    @Override
+    public Status getStatus(){
+        return status;
+    }
+
+    @Override
+    public double getSolveTime(){
+        return solveTime;
+    }
+
+    @Override
+    public double[] getUtilities(){
+        return utilities;
+    }
+
+    @Override
+    public void setUtilities(double[] utilities){
+        System.arraycopy(utilities, 0, this.utilities, 0, this.utilities.length);
+    }
+
+    @Override
+    public void dispose(){
+        tableau = null;
+        warm = false;
+    }
+
+    //tableau with the value and epsilon bounds and U(highest) <= 1, U(lowest) >= 0 follows from the bounds
+    private void reset(){
+        int capacity = 2 * n + MIN_BATCH;
+        tableau = new double[capacity][];
+        rhs = new double[capacity];
+        rowVar = new int[capacity];
+        rows = 0;
+        slacks = n;
+
+        cost = new double[n];
+        cost[epsilon] = 1.0;
+        colVar = new int[n];
+        position = new int[n];
+        for(int j=0; j<n; j++){
+            colVar[j] = j;
+            position[j] = -1 - j;
+        }
+
+        for(int j=0; j<n; j++){
+            double[] g = new double[n];
+            g[j] = 1.0;
+            addRow(g, j == epsilon ? 10.0 : 1.0);
+        }
+        addMaximum();
+    }
+
+    private void addMaximum(){
+        double[] g = new double[n];
+        for(int column : lp.getBid(lp.getNumberOfBids()-1)){
+            g[column] += 1.0;
+        }
+        addRow(g, 1.0);
+    }
+
+    //position in the old ranking of every bid of the new one, -1 for an inserted bid, null if bids were not only inserted
+    private int[] previousPositions(List<Bid> bidList){
+        if(bidList.size() < bids.size()){
+            return null;
+        }
+        int[] previous = new int[bidList.size()];
+        int i = 0;
+        for(int k=0; k<bidList.size(); k++){
+            previous[k] = i < bids.size() && bids.get(i).equals(bidList.get(k)) ? i++ : -1;
+        }
+        return i == bids.size() ? previous : null;
+    }
+
+    private void solution(double[] x){
+        for(int j=0; j<n; j++){
+            x[j] = position[j] >= 0 ? Math.max(0.0, rhs[position[j]]) : 0.0;
+        }
+    }
+
+    /**
+     * Adds the most violated pair rows, epsilon + U(b1) - U(b2) <= 0, for the current solution x.
+     *
+     * @return the number of rows added
+     */
+    private int addViolated(double[] x){
+        int[] candidates = new int[lp.getRows()];
+        double[] violation = new double[lp.getRows()];
+        int count = 0;
+        for(int k=0; k<lp.getRows(); k++){
+            if(active[k]){
+                continue;
+            }
+            double v = lp.activity(k, x);
+            if(v > TOLERANCE){
+                violation[k] = v;
+                candidates[count++] = k;
+            }
+        }
+
+        int batch = Math.max(MIN_BATCH, n);
+        if(count > batch){
+            //most violated first
+            Integer[] order = new Integer[count];
+            for(int c=0; c<count; c++){
+                order[c] = candidates[c];
+            }
+            Arrays.sort(order, (a,b) -> Double.compare(violation[b], violation[a]));
+            for(int c=0; c<batch; c++){
+                candidates[c] = order[c];
+            }
+            count = batch;
+        }
+
+        for(int c=0; c<count; c++){
+            int k = candidates[c];
+            double[] g = new double[n];
+            int[] columns = lp.getColumns();
+            double[] coefficients = lp.getCoefficients();
+            for(int p=lp.rowStart(k); p<lp.rowEnd(k); p++){
+                g[columns[p]] = coefficients[p];
+            }
+            addRow(g, 0.0);
+            active[k] = true;
+        }
+        return count;
+    }
+
+    //adds the row g.x <= h, written in terms of the current non-basic variables
+    private void addRow(double[] g, double h){
+        if(rows == tableau.length){
+            int capacity = 2 * rows;
+            tableau = Arrays.copyOf(tableau, capacity);
+            rhs = Arrays.copyOf(rhs, capacity);
+            rowVar = Arrays.copyOf(rowVar, capacity);
+        }
+
+        double[] row = new double[n];
+        double b = h;
+        for(int v=0; v<n; v++){
+            if(g[v] == 0.0){
+                continue;
+            }
+            int p = position[v];
+            if(p < 0){
+                row[-1-p] += g[v];
+            } else {
+                double[] basic = tableau[p];
+                for(int j=0; j<n; j++){
+                    row[j] -= g[v] * basic[j];
+                }
+                b -= g[v] * rhs[p];
+            }
+        }
+
+        tableau[rows] = row;
+        rhs[rows] = b;
+        rowVar[rows] = slacks++;
+        rows++;
+    }
+
+    private boolean primal(){
+        int maxIterations = 50 * (rows + n);
+        int degenerate = 0;
+
+        for(int iteration=0; iteration<maxIterations; iteration++){
+            if(System.nanoTime() >= deadline){
+                return false;
+            }
+            boolean bland = degenerate > DEGENERATE_PIVOTS;
+
+            //entering column: largest reduced cost, or the lowest variable when cycling is possible
+            int s = -1;
+            for(int j=0; j<n; j++){
+                if(cost[j] > TOLERANCE && (s == -1 || (bland ? colVar[j] < colVar[s] : cost[j] > cost[s]))){
+                    s = j;
+                }
+            }
+            if(s == -1){
+                return true;
+            }
+
+            int r = -1;
+            double ratio = 0;
+            for(int i=0; i<rows; i++){
+                double a = tableau[i][s];
+                if(a > TOLERANCE){
+                    double t = Math.max(0.0, rhs[i]) / a;
+                    if(r == -1 || t < ratio - TOLERANCE || (t <= ratio + TOLERANCE && rowVar[i] < rowVar[r])){
+                        r = i;
+                        ratio = t;
+                    }
+                }
+            }
+            if(r == -1){
+                //can't happen with bounded columns
+                return false;
+            }
+
+            degenerate = ratio <= TOLERANCE ? degenerate + 1 : 0;
+            pivot(r, s);
+        }
+        return false;
+    }
+
+    private boolean dual(){
+        int maxIterations = 50 * (rows + n);
+
+        for(int iteration=0; iteration<maxIterations; iteration++){
+            if(System.nanoTime() >= deadline){
+                return false;
+            }
+            //leaving row: the most infeasible one
+            int r = -1;
+            for(int i=0; i<rows; i++){
+                if(rhs[i] < -TOLERANCE && (r == -1 || rhs[i] < rhs[r])){
+                    r = i;
+                }
+            }
+            if(r == -1){
+                return true;
+            }
+
+            //entering column: smallest cost ratio, so all costs stay <= 0
+            double[] a = tableau[r];
+            int s = -1;
+            double ratio = 0;
+            for(int j=0; j<n; j++){
+                if(a[j] < -TOLERANCE){
+                    double t = Math.min(0.0, cost[j]) / a[j];
+                    if(s == -1 || t < ratio - TOLERANCE || (t <= ratio + TOLERANCE && colVar[j] < colVar[s])){
+                        s = j;
+                        ratio = t;
+                    }
+                }
+            }
+            if(s == -1){
+                //the row can't be satisfied, can't happen since all zero is feasible
+                return false;
+            }
+
+            pivot(r, s);
+        }
+        return false;
+    }
+
+    private void pivot(int r, int s){
+        double[] pivotRow = tableau[r];
+        double p = pivotRow[s];
+
+        for(int j=0; j<n; j++){
+            pivotRow[j] /= p;
+        }
+        rhs[r] /= p;
+        pivotRow[s] = 1.0 / p;
+
+        for(int i=0; i<rows; i++){
+            double[] a = tableau[i];
+            double f = a[s];
+            if(i == r || f == 0.0){
+                continue;
+            }
+            for(int j=0; j<n; j++){
+                a[j] -= f * pivotRow[j];
+            }
+            a[s] = -f * pivotRow[s];
+            rhs[i] -= f * rhs[r];
+        }
+
+        double d = cost[s];
+        for(int j=0; j<n; j++){
+            cost[j] -= d * pivotRow[j];
+        }
+        cost[s] = -d * pivotRow[s];
+
+        int entering = colVar[s];
+        int leaving = rowVar[r];
+        rowVar[r] = entering;
+        colVar[s] = leaving;
+        if(entering < n){
+            position[entering] = r;
+        }
+        if(leaving < n){
+            position[leaving] = -1 - s;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package group12;
+
+import genius.core.timeline.TimeLineInfo;
+import genius.core.timeline.Timeline;
+
+/**
+ * Time a single preference solve may take, so estimation can't run the agent past the deadline.
+ *
+ * The budget is a share of the time that is left, after keeping a few rounds free for answering. Under a
+ * round deadline the time that is left is estimated from the rounds that are left and the observed round
+ * latency.
+ *
+ * A turn may spend a share of an average round on solves, so they take no longer than the rest of the round.
+ * With -Dgroup12.unlimited=true nothing is timed, so the play only depends on the seed.
+ */
+public class SolveBudget {
+    //share of the remaining time one solve may use
+    private static final double SHARE = 0.1;
+    //rounds of time kept free for the agent to answer
+    private static final int RESERVE_ROUNDS = 2;
+    //in seconds, no solve gets less than MIN_BUDGET, and DEFAULT_BUDGET is used before any round was seen
+    private static final double MIN_BUDGET = 0.005;
+    private static final double DEFAULT_BUDGET = 1.0;
+    //share of an average round the solves of one turn may use
+    private static final double TURN_SHARE = 0.5;
+    //weight of the newest round in the latency average
+    private static final double ALPHA = 0.2;
+
+    private TimeLineInfo timeline;
+    private boolean unlimited;
+    private long lastRound = -1;
+    private double roundLatency;
+
+    public SolveBudget(TimeLineInfo timeline){
+        this.timeline = timeline;
+        unlimited = Boolean.getBoolean("group12.unlimited");
+    }
+
+    /**
+     * Marks the start of a round, should be called once per chooseAction.
+     */
+    public void tick(){
+        long now = System.nanoTime();
+        if(lastRound >= 0){
+            double latency = (now - lastRound) / 1e9;
+            roundLatency = roundLatency == 0 ? latency : (1-ALPHA) * roundLatency + ALPHA * latency;
+        }
+        lastRound = now;
+    }
+
+    /**
+     * @return average seconds between two rounds, 0 before the second round
+     */
+    public double getRoundLatency(){
+        return roundLatency;
+    }
+
+    /**
+     * @return seconds the solves of this turn may still take, infinite before the second round
+     */
+    public double getTurnTimeLeft(){
+        if(timeline == null || unlimited || roundLatency == 0){
+            return Double.POSITIVE_INFINITY;
+        }
+        double turn = TURN_SHARE * roundLatency;
+        if(timeline.getType() == Timeline.Type.Time){
+            turn = Math.min(turn, (1 - timeline.getTime()) * timeline.getTotalTime() - RESERVE_ROUNDS * roundLatency);
+        }
+        return Math.max(MIN_BUDGET, turn - (System.nanoTime() - lastRound) / 1e9);
+    }
+
+    /**
+     * @return seconds the next solve may take
+     */
+    public double next(){
+        if(timeline == null || unlimited){
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double remaining;
+        if(timeline.getType() == Timeline.Type.Time){
+            remaining = (1 - timeline.getTime()) * timeline.getTotalTime();
+        } else {
+            if(roundLatency == 0){
+                return DEFAULT_BUDGET;
+            }
+            //total time of a round deadline is the number of rounds
+            remaining = (1 - timeline.getTime()) * timeline.getTotalTime() * roundLatency;
+        }
+        return Math.max(MIN_BUDGET, SHARE * (remaining - RESERVE_ROUNDS * roundLatency));
+    }
+
+    /**
+     * @return seconds some other work of the turn may take, the given ones unless nothing is timed
+     */
+    public double limit(double seconds){
+        return unlimited ? Double.POSITIVE_INFINITY : seconds;
+    }
+}
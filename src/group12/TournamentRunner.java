@@ -0,0 +1,503 @@
+package group12;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.Deadline;
+import genius.core.DeadlineType;
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.EndNegotiation;
+import genius.core.actions.Offer;
+import genius.core.parties.NegotiationInfo;
+import genius.core.parties.NegotiationParty;
+import genius.core.persistent.DefaultPersistentDataContainer;
+import genius.core.persistent.PersistentDataContainer;
+import genius.core.persistent.PersistentDataType;
+import genius.core.timeline.ContinuousTimeline;
+import genius.core.timeline.DiscreteTimeline;
+import genius.core.timeline.Timeline;
+import genius.core.uncertainty.BidRanking;
+import genius.core.uncertainty.ExperimentalUserModel;
+import genius.core.uncertainty.User;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.UncertainAdditiveUtilitySpace;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the tournaments of a multilateraltournament.xml without the GUI, with the sessions spread over threads.
+ *
+ * Every tournament plays its repeats of every combination of parties (with or without the same party twice,
+ * as the configuration says) against every ordered choice of profiles, under the stacked alternating offers
+ * protocol. The domain of the profiles comes from domainrepository.xml. Party i of session s gets seed
+ * 31 * s + i, so a session plays the same whatever thread runs it, as long as the deadline is in rounds; with
+ * a deadline in seconds play depends on how fast it runs.
+ *
+ * A party only gets a user model when its profile is uncertain: a ranking of as many random bids as the profile
+ * has comparisons, and a user that charges the elicitation cost of the profile. Errors in the ranking are not
+ * simulated. With -Dgroup12.ranked=n every party gets a ranking of n bids instead, or none for 0.
+ *
+ * With persistentDataType SERIALIZABLE every party class keeps its data per profile from one session to the
+ * next, like the GUI does: a session gets a copy of what the last one stored, and sessions that share data are
+ * played in session order. STANDARD is not supported.
+ *
+ * Every session is logged to log/Log-Session_[start]-[session].csv, in the format the GUI writes. A party that
+ * throws ends its session, which is logged as failed with the exception. Sessions are written as they finish,
+ * but in session order, and the sessions per second are reported at the end.
+ *
+ * Run from the project directory with the configuration, the number of threads or "virtual" for a virtual
+ * thread per session (Java 21 and later) and the domain repository as arguments.
+ */
+public class TournamentRunner {
+    private static final String LOG_DIR = "log";
+    //bids in every generated ranking, 0 to play without a user model, null to go by the profiles
+    private static final Integer RANKED = Integer.getInteger("group12.ranked");
+    private static final List<Class<? extends Action>> FIRST_ACTIONS = Arrays.asList(Offer.class, EndNegotiation.class);
+    private static final List<Class<? extends Action>> ACTIONS = Arrays.asList(Accept.class, Offer.class, EndNegotiation.class);
+
+    public static void main(String[] args) throws Exception {
+        String config = args.length > 0 ? args[0] : "genius-9.1.11/multilateraltournament.xml";
+        String threads = args.length > 1 ? args[1] : String.valueOf(Runtime.getRuntime().availableProcessors());
+        String repository = args.length > 2 ? args[2] : "domainrepository.xml";
+
+        List<Session> sessions = sessions(config, domains(repository));
+        String start = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        new File(LOG_DIR).mkdirs();
+
+        //the agents talk a lot, only the results are of interest
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b){
+            }
+        }));
+        ExecutorService executor = executor(threads);
+        long time = System.nanoTime();
+        //the persistent data of every party class and profile, and the last session that uses it
+        Map<String, Serializable> storage = new ConcurrentHashMap<>();
+        Map<String, CompletableFuture<Result>> last = new HashMap<>();
+        List<CompletableFuture<Result>> results = new ArrayList<>();
+        for(Session session : sessions){
+            List<CompletableFuture<Result>> before = new ArrayList<>();
+            for(int p=0; p<session.parties.length && session.persistentDataType == PersistentDataType.SERIALIZABLE; p++){
+                if(last.containsKey(session.key(p))){
+                    before.add(last.get(session.key(p)));
+                }
+            }
+            CompletableFuture<Result> result = CompletableFuture.allOf(before.toArray(new CompletableFuture<?>[0]))
+                    .thenApplyAsync(v -> run(session, storage), executor);
+            for(int p=0; p<session.parties.length && session.persistentDataType == PersistentDataType.SERIALIZABLE; p++){
+                last.put(session.key(p), result);
+            }
+            results.add(result);
+        }
+        int agreements = 0;
+        int failures = 0;
+        try {
+            for(int s=0; s<sessions.size(); s++){
+                Result result = results.get(s).get();
+                File file = new File(LOG_DIR, String.format("Log-Session_%s-%04d.csv", start, s));
+                Files.write(file.toPath(), result.log.getBytes(StandardCharsets.UTF_8));
+                if(result.agreement){
+                    agreements++;
+                }
+                if(result.failure != null){
+                    failures++;
+                }
+                out.println("Session " + (s+1) + "/" + sessions.size() + " " + sessions.get(s)
+                        + (result.failure != null ? " failed: " + result.failure : result.agreement ? " agreement" : " no agreement")
+                        + ", " + file);
+            }
+        } finally {
+            executor.shutdown();
+            System.setOut(out);
+        }
+        double seconds = (System.nanoTime() - time) / 1e9;
+        System.out.println(sessions.size() + " sessions, " + agreements + " agreements, " + failures + " failed in "
+                + seconds + "s, " + sessions.size() / seconds + " sessions/s on " + threads + " threads");
+    }
+
+    //plays one session of stacked alternating offers, a party that throws ends it
+    private static Result run(Session session, Map<String, Serializable> storage){
+        int n = session.parties.length;
+        NegotiationParty[] parties = new NegotiationParty[n];
+        AgentID[] ids = new AgentID[n];
+        for(int p=0; p<n; p++){
+            ids[p] = new AgentID(session.parties[p].getSimpleName() + "@" + p);
+        }
+        AdditiveUtilitySpace[] utilitySpaces = new AdditiveUtilitySpace[n];
+        PersistentDataContainer[] data = new PersistentDataContainer[n];
+
+        StringBuilder log = new StringBuilder();
+        Bid agreement = null;
+        //party whose code runs, blamed if it throws
+        int current = -1;
+        String failure = null;
+        try {
+            Domain domain = new DomainImpl(session.domain);
+            Timeline timeline = session.deadline.getType() == DeadlineType.ROUND
+                    ? new DiscreteTimeline(session.deadline.getValue()) : new ContinuousTimeline(session.deadline.getValue());
+            for(int p=0; p<n; p++){
+                long seed = 31L * session.index + p;
+                utilitySpaces[p] = new AdditiveUtilitySpace(domain, session.profiles[p]);
+                ExperimentalUserModel userModel = null;
+                User user = null;
+                int ranked = RANKED != null ? RANKED : session.ranked[p];
+                if(ranked > 0){
+                    UncertainAdditiveUtilitySpace uncertain = new UncertainAdditiveUtilitySpace(utilitySpaces[p], ranked, 0,
+                            session.elicitationCosts[p], true, true);
+                    userModel = new ExperimentalUserModel(ranking(domain, utilitySpaces[p], ranked, new Random(seed)), uncertain);
+                    user = new User(uncertain);
+                }
+                data[p] = new DefaultPersistentDataContainer(session.persistentDataType == PersistentDataType.SERIALIZABLE
+                        ? copy(storage.get(session.key(p))) : null, session.persistentDataType);
+                current = p;
+                parties[p] = (NegotiationParty) session.parties[p].getDeclaredConstructor().newInstance();
+                parties[p].init(new NegotiationInfo(utilitySpaces[p], userModel, user, session.deadline, timeline, seed, ids[p], data[p]));
+            }
+
+            Bid offer = null;
+            int accepts = 0;
+            boolean ended = false;
+            for(int round=1; agreement == null && !ended && !timeline.isDeadlineReached(); round++){
+                for(int p=0; p<n && agreement == null && !ended && !timeline.isDeadlineReached(); p++){
+                    current = p;
+                    Action action = parties[p].chooseAction(offer == null ? FIRST_ACTIONS : ACTIONS);
+                    log.append(round).append(',').append(p+1).append(',').append(timeline.getTime()).append(',')
+                            .append(ids[p].getName()).append(',').append(action).append('\n');
+                    for(int q=0; q<n; q++){
+                        if(q != p){
+                            current = q;
+                            parties[q].receiveMessage(ids[p], action);
+                        }
+                    }
+                    if(action instanceof Offer){
+                        offer = ((Offer) action).getBid();
+                        accepts = 0;
+                    } else if(action instanceof Accept && offer != null){
+                        //everybody else accepted the offer on the table
+                        if(++accepts == n-1){
+                            agreement = offer;
+                        }
+                    } else {
+                        ended = true;
+                    }
+                }
+                if(timeline instanceof DiscreteTimeline){
+                    ((DiscreteTimeline) timeline).increment();
+                }
+            }
+        } catch (Throwable e) {
+            e.printStackTrace();
+            failure = (current >= 0 ? ids[current].getName() : session.domain) + " " + e;
+            agreement = null;
+        }
+        for(int p=0; p<n; p++){
+            if(parties[p] == null){
+                continue;
+            }
+            try {
+                parties[p].negotiationEnded(agreement);
+                if(session.persistentDataType == PersistentDataType.SERIALIZABLE && data[p].get() != null){
+                    storage.put(session.key(p), data[p].get());
+                }
+            } catch (Throwable e) {
+                e.printStackTrace();
+                if(failure == null){
+                    failure = ids[p].getName() + " " + e;
+                }
+            }
+        }
+
+        if(failure != null){
+            log.append("failed,").append(failure.replace('\n', ' '));
+        } else if(agreement != null){
+            log.append("agreement,").append(agreement);
+            for(AdditiveUtilitySpace utilitySpace : utilitySpaces){
+                log.append(',').append(utilitySpace.getUtility(agreement));
+            }
+        } else {
+            log.append("ended-no-agreement");
+        }
+        log.append('\n');
+        return new Result(log.toString(), agreement != null, failure);
+    }
+
+    //a copy of stored data, as if it was saved and loaded again, so a session can't change what it was given
+    private static Serializable copy(Serializable data) throws Exception {
+        if(data == null){
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)){
+            out.writeObject(data);
+        }
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))){
+            return (Serializable) in.readObject();
+        }
+    }
+
+    /**
+     * @return size distinct random bids from low to high utility
+     */
+    static BidRanking ranking(Domain domain, AdditiveUtilitySpace utilitySpace, int size, Random random){
+        LinkedHashSet<Bid> bids = new LinkedHashSet<>();
+        for(int k=0; k<10 * size && bids.size() < size; k++){
+            bids.add(domain.getRandomBid(random));
+        }
+        List<Bid> bidOrder = new ArrayList<>(bids);
+        bidOrder.sort(Comparator.comparingDouble(utilitySpace::getUtility));
+        return new BidRanking(bidOrder, utilitySpace.getUtility(bidOrder.get(0)),
+                utilitySpace.getUtility(bidOrder.get(bidOrder.size()-1)));
+    }
+
+    private static ExecutorService executor(String threads) throws Exception {
+        if(threads.equals("virtual")){
+            //virtual threads came with Java 21, the project is built for Java 8
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("Virtual threads need Java 21 or later");
+            }
+        }
+        return Executors.newFixedThreadPool(Integer.parseInt(threads));
+    }
+
+    //the sessions of every tournament in the configuration, in the order they are played and logged
+    private static List<Session> sessions(String config, Map<String, String> domains) throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(config));
+        List<Session> sessions = new ArrayList<>();
+        Map<String, Element> profileSpaces = new HashMap<>();
+        for(Element tournament : elements(document.getDocumentElement(), "tournament")){
+            Element deadline = elements(tournament, "deadline").get(0);
+            Deadline sessionDeadline = new Deadline(Integer.parseInt(text(deadline, "value")),
+                    DeadlineType.valueOf(text(deadline, "type")));
+            PersistentDataType persistentDataType = elements(tournament, "persistentDataType").isEmpty()
+                    ? PersistentDataType.DISABLED : PersistentDataType.valueOf(text(tournament, "persistentDataType"));
+            if(persistentDataType == PersistentDataType.STANDARD){
+                throw new IllegalArgumentException("Persistent data type STANDARD is not supported");
+            }
+            List<Class<?>> parties = new ArrayList<>();
+            for(Element party : elements(tournament, "party")){
+                parties.add(partyClass(party.getAttribute("classPath")));
+            }
+            List<String> profiles = new ArrayList<>();
+            for(Element item : elements(elements(tournament, "partyProfileItems").get(0), "item")){
+                profiles.add(path(item.getAttribute("url")));
+                if(!profileSpaces.containsKey(path(item.getAttribute("url")))){
+                    profileSpaces.put(path(item.getAttribute("url")), DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                            .parse(new File(path(item.getAttribute("url")))).getDocumentElement());
+                }
+            }
+            int repeats = Integer.parseInt(text(tournament, "repeats"));
+            int partiesPerSession = Integer.parseInt(text(tournament, "numberOfPartiesPerSession"));
+            boolean repetition = Boolean.parseBoolean(text(tournament, "repetitionAllowed"));
+
+            List<int[]> partyChoices = new ArrayList<>();
+            combinations(parties.size(), repetition, 0, new int[partiesPerSession], 0, partyChoices);
+            List<int[]> profileChoices = new ArrayList<>();
+            permutations(profiles.size(), new boolean[profiles.size()], new int[partiesPerSession], 0, profileChoices);
+            for(int r=0; r<repeats; r++){
+                for(int[] partyChoice : partyChoices){
+                    for(int[] profileChoice : profileChoices){
+                        Session session = new Session(sessions.size(), sessionDeadline, persistentDataType, partiesPerSession);
+                        for(int p=0; p<partiesPerSession; p++){
+                            session.parties[p] = parties.get(partyChoice[p]);
+                            session.profiles[p] = profiles.get(profileChoice[p]);
+                            //an uncertain profile says how many bids the user ranks and what asking for one more costs
+                            Element space = profileSpaces.get(session.profiles[p]);
+                            if("UNCERTAIN".equals(space.getAttribute("type")) && !elements(space, "comparisons").isEmpty()){
+                                session.ranked[p] = Integer.parseInt(text(space, "comparisons"));
+                                session.elicitationCosts[p] = elements(space, "elicitation_cost").isEmpty() ? 0
+                                        : Double.parseDouble(text(space, "elicitation_cost"));
+                            }
+                        }
+                        session.domain = domains.get(session.profiles[0]);
+                        if(session.domain == null){
+                            throw new IllegalArgumentException("No domain lists profile " + session.profiles[0]);
+                        }
+                        sessions.add(session);
+                    }
+                }
+            }
+        }
+        return sessions;
+    }
+
+    //domain of every profile in the domain repository
+    private static Map<String, String> domains(String repository) throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(repository));
+        Map<String, String> domains = new HashMap<>();
+        for(Element domain : elements(document.getDocumentElement(), "domainRepItem")){
+            //the list of domains is a domainRepItem too
+            if(!domain.hasAttribute("url")){
+                continue;
+            }
+            for(Element profile : elements(domain, "profile")){
+                domains.put(path(profile.getAttribute("url")), path(domain.getAttribute("url")));
+            }
+        }
+        return domains;
+    }
+
+    /**
+     * @return the party with this class name, or in this class file, as the GUI stores parties it loaded from disk
+     */
+    static Class<?> partyClass(String classPath) throws Exception {
+        if(!classPath.endsWith(".class")){
+            return Class.forName(classPath);
+        }
+        //the package is some tail of the directories the class file is in, the rest is the class path root
+        String[] parts = classPath.substring(0, classPath.length() - ".class".length()).split("[/\\\\]");
+        String name = parts[parts.length-1];
+        for(int root=parts.length-1; root>=0; root--){
+            try {
+                return Class.forName(name);
+            } catch (ClassNotFoundException | NoClassDefFoundError e) {
+                //not on the class path under this name
+            }
+            File directory = new File(String.join(File.separator, Arrays.copyOfRange(parts, 0, root)));
+            if(root > 0 && directory.isDirectory()){
+                try {
+                    return new URLClassLoader(new URL[]{ directory.toURI().toURL() }).loadClass(name);
+                } catch (ClassNotFoundException | NoClassDefFoundError e) {
+                    //the class is in another package
+                }
+            }
+            if(root > 0){
+                name = parts[root-1] + "." + name;
+            }
+        }
+        throw new ClassNotFoundException(classPath);
+    }
+
+    //every choice of size indices out of items, in increasing order, or non-decreasing with repetition
+    private static void combinations(int items, boolean repetition, int from, int[] choice, int depth, List<int[]> out){
+        if(depth == choice.length){
+            out.add(choice.clone());
+            return;
+        }
+        for(int i=from; i<items; i++){
+            choice[depth] = i;
+            combinations(items, repetition, repetition ? i : i+1, choice, depth+1, out);
+        }
+    }
+
+    //every ordered choice of distinct indices out of items
+    private static void permutations(int items, boolean[] used, int[] choice, int depth, List<int[]> out){
+        if(depth == choice.length){
+            out.add(choice.clone());
+            return;
+        }
+        for(int i=0; i<items; i++){
+            if(!used[i]){
+                used[i] = true;
+                choice[depth] = i;
+                permutations(items, used, choice, depth+1, out);
+                used[i] = false;
+            }
+        }
+    }
+
+    private static List<Element> elements(Element parent, String tag){
+        NodeList nodes = parent.getElementsByTagName(tag);
+        if(nodes.getLength() == 0){
+            return Collections.emptyList();
+        }
+        List<Element> elements = new ArrayList<>();
+        for(int k=0; k<nodes.getLength(); k++){
+            elements.add((Element) nodes.item(k));
+        }
+        return elements;
+    }
+
+    private static String text(Element parent, String tag){
+        return elements(parent, tag).get(0).getTextContent().trim();
+    }
+
+    //repository urls are relative file urls
+    private static String path(String url){
+        return url.startsWith("file:") ? url.substring("file:".length()) : url;
+    }
+
+    private static final class Session {
+        private final int index;
+        private final Deadline deadline;
+        private final PersistentDataType persistentDataType;
+        private final Class<?>[] parties;
+        private final String[] profiles;
+        //bids in the ranking of every party, 0 without a user model
+        private final int[] ranked;
+        private final double[] elicitationCosts;
+        private String domain;
+
+        Session(int index, Deadline deadline, PersistentDataType persistentDataType, int size){
+            this.index = index;
+            this.deadline = deadline;
+            this.persistentDataType = persistentDataType;
+            parties = new Class<?>[size];
+            profiles = new String[size];
+            ranked = new int[size];
+            elicitationCosts = new double[size];
+        }
+
+        //the persistent data of party p
+        String key(int p){
+            return parties[p].getName() + "@" + profiles[p];
+        }
+
+        @Override
+        public String toString(){
+            StringBuilder builder = new StringBuilder();
+            for(int p=0; p<parties.length; p++){
+                builder.append(p == 0 ? "" : " vs ").append(parties[p].getSimpleName()).append(" (").append(profiles[p]).append(')');
+            }
+            return builder.toString();
+        }
+    }
+
+    private static final class Result {
+        private final String log;
+        private final boolean agreement;
+        //party and exception that ended the session, null if it ended normally
+        private final String failure;
+
+        Result(String log, boolean agreement, String failure){
+            this.log = log;
+            this.agreement = agreement;
+            this.failure = failure;
+        }
+    }
+}
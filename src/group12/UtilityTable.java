@@ -0,0 +1,260 @@
+package group12;
+
+import genius.core.issue.IssueDiscrete;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.EvaluatorDiscrete;
+
+import java.util.Random;
+
+/**
+ * Estimated utility of every possible bid, indexed by {@link BidCodec} id, together with the ids sorted by
+ * that utility. Built from one estimate of the value utilities and never changed afterwards, a new
+ * estimate gets a new table.
+ *
+ * The table is filled issue by issue: after the first i issues it holds the partial sums of all bids over
+ * those issues, and adding the next issue copies that block once per value with the value utility added,
+ * so the whole table is a few tight array loops.
+ *
+ * Because the ids are also sorted by utility, a bid in a utility range or near a utility is found by binary
+ * search instead of by sampling random bids.
+ *
+ * An outcome space too large to tabulate gets a {@link #sampled} table instead, which keeps only the value
+ * utilities: there getUtility sums them, best() is the best value of every issue and randomAbove draws random
+ * bids. The methods by rank need the sorted ids and are not available on a sampled table.
+ */
+public class UtilityTable {
+    //random bids a sampled table draws before randomAbove gives up and returns best()
+    private static final int SAMPLES = 1000;
+
+    private final BidCodec codec;
+    private final double[] valueUtilities;
+    private final long best;
+    //null when the table is sampled
+    private final double[] utilities;
+    //ids in increasing order of utility, and their utilities
+    private final int[] order;
+    private final double[] sorted;
+
+    public UtilityTable(BidCodec codec, double[] valueUtilities){
+        if(codec.getNumberOfBids() > Integer.MAX_VALUE - 8){
+            throw new IllegalArgumentException("Outcome space too large for a utility table");
+        }
+        this.codec = codec;
+        this.valueUtilities = valueUtilities;
+        int size = (int) codec.getNumberOfBids();
+        ValueIndex index = codec.getValueIndex();
+
+        //issue 0 is the lowest digit of the id, so its values are the innermost block
+        utilities = new double[size];
+        int length = 1;
+        for(int i=0; i<index.getIssueCount(); i++){
+            int offset = index.offset(i);
+            //back to front, block 0 is read by all the others so it is written last
+            for(int v=index.getNumberOfValues(i)-1; v>=0; v--){
+                double u = valueUtilities[offset + v];
+                int start = v * length;
+                for(int j=0; j<length; j++){
+                    utilities[start + j] = utilities[j] + u;
+                }
+            }
+            length *= index.getNumberOfValues(i);
+        }
+
+        order = new int[size];
+        for(int id=0; id<size; id++){
+            order[id] = id;
+        }
+        sort(order, new int[size], 0, size);
+        sorted = new double[size];
+        for(int r=0; r<size; r++){
+            sorted[r] = utilities[order[r]];
+        }
+        best = order[size-1];
+    }
+
+    private UtilityTable(BidCodec codec, double[] valueUtilities, long best){
+        this.codec = codec;
+        this.valueUtilities = valueUtilities;
+        this.best = best;
+        utilities = null;
+        order = null;
+        sorted = null;
+    }
+
+    /**
+     * @return table that keeps only the value utilities and samples bids, for outcome spaces too large to tabulate
+     */
+    public static UtilityTable sampled(BidCodec codec, double[] valueUtilities){
+        ValueIndex index = codec.getValueIndex();
+        //the utility is a sum over the issues, so the best bid has the best value of every issue
+        int[] codes = new int[index.getIssueCount()];
+        for(int i=0; i<codes.length; i++){
+            for(int v=1; v<index.getNumberOfValues(i); v++){
+                if(valueUtilities[index.offset(i) + v] > valueUtilities[index.offset(i) + codes[i]]){
+                    codes[i] = v;
+                }
+            }
+        }
+        return new UtilityTable(codec, valueUtilities, codec.id(codes));
+    }
+
+    /**
+     * Table of the real utilities of an additive profile.
+     */
+    public static UtilityTable of(BidCodec codec, AdditiveUtilitySpace utilitySpace){
+        return new UtilityTable(codec, valueUtilities(codec.getValueIndex(), utilitySpace));
+    }
+
+    /**
+     * @return weight times evaluation of every value of an additive profile, by {@link ValueIndex} column
+     */
+    public static double[] valueUtilities(ValueIndex index, AdditiveUtilitySpace utilitySpace){
+        double[] valueUtilities = new double[index.size()];
+        for(int i=0; i<index.getIssueCount(); i++){
+            IssueDiscrete issueDiscrete = (IssueDiscrete) index.getIssues().get(i);
+            int issueNumber = issueDiscrete.getNumber();
+            double weight = utilitySpace.getWeight(issueNumber);
+            EvaluatorDiscrete evaluatorDiscrete = (EvaluatorDiscrete) utilitySpace.getEvaluator(issueNumber);
+            for(int v=0; v<index.getNumberOfValues(i); v++){
+                try{
+                    valueUtilities[index.offset(i) + v] = weight * evaluatorDiscrete.getEvaluation(issueDiscrete.getValue(v));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return valueUtilities;
+    }
+
+    public BidCodec getCodec(){
+        return codec;
+    }
+
+    public int size(){
+        return order.length;
+    }
+
+    public double getUtility(long id){
+        if(utilities == null){
+            return codec.utility(id, valueUtilities);
+        }
+        return utilities[(int) id];
+    }
+
+    /**
+     * @return id of the bid at this rank, rank 0 has the lowest estimated utility
+     */
+    public long idAt(int rank){
+        return order[rank];
+    }
+
+    public double utilityAt(int rank){
+        return sorted[rank];
+    }
+
+    public long best(){
+        return best;
+    }
+
+    /**
+     * @return lowest rank with a utility of at least target, size() if there is none
+     */
+    public int rankAbove(double target){
+        int lo = 0;
+        int hi = sorted.length;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(sorted[mid] < target){
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return id of a uniformly random bid with a utility in [lo, hi], -1 if there is none
+     */
+    public long randomBetween(double lo, double hi, Random random){
+        int from = rankAbove(lo);
+        int to = rankAbove(Math.nextUp(hi));
+        if(from >= to){
+            return -1;
+        }
+        return order[from + random.nextInt(to - from)];
+    }
+
+    /**
+     * @return id of a uniformly random bid with a utility of at least target, best() if there is none (on a
+     * sampled table: if none of the bids drawn reaches it)
+     */
+    public long randomAbove(double target, Random random){
+        if(order == null){
+            ValueIndex index = codec.getValueIndex();
+            int[] codes = new int[index.getIssueCount()];
+            for(int n=0; n<SAMPLES; n++){
+                for(int i=0; i<codes.length; i++){
+                    codes[i] = random.nextInt(index.getNumberOfValues(i));
+                }
+                long id = codec.id(codes);
+                if(codec.utility(id, valueUtilities) >= target){
+                    return id;
+                }
+            }
+            return best;
+        }
+        long id = randomBetween(target, Double.POSITIVE_INFINITY, random);
+        return id < 0 ? best() : id;
+    }
+
+    /**
+     * @return ids of the k bids (fewer if the table is smaller) with a utility closest to target, closest first
+     */
+    public long[] closest(double target, int k){
+        long[] ids = new long[Math.min(k, order.length)];
+        //the ranks right below and at or above target, the closer one is taken until there are enough
+        int below = rankAbove(target) - 1;
+        int above = below + 1;
+        for(int n=0; n<ids.length; n++){
+            if(above >= order.length || (below >= 0 && target - sorted[below] <= sorted[above] - target)){
+                ids[n] = order[below--];
+            } else {
+                ids[n] = order[above++];
+            }
+        }
+        return ids;
+    }
+
+    //merge sort of ids[from..to) by utility, stable so equal utilities stay in id order
+    private void sort(int[] ids, int[] buffer, int from, int to){
+        if(to - from < 16){
+            for(int i=from+1; i<to; i++){
+                int id = ids[i];
+                int j = i - 1;
+                while(j >= from && utilities[ids[j]] > utilities[id]){
+                    ids[j+1] = ids[j];
+                    j--;
+                }
+                ids[j+1] = id;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(ids, buffer, from, mid);
+        sort(ids, buffer, mid, to);
+        if(utilities[ids[mid-1]] <= utilities[ids[mid]]){
+            return;
+        }
+        System.arraycopy(ids, from, buffer, from, to - from);
+        int a = from;
+        int b = mid;
+        for(int k=from; k<to; k++){
+            if(b >= to || (a < mid && utilities[buffer[a]] <= utilities[buffer[b]])){
+                ids[k] = buffer[a++];
+            } else {
+                ids[k] = buffer[b++];
+            }
+        }
+    }
+}
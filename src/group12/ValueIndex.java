@@ -0,0 +1,114 @@
+package group12;
+
+import genius.core.Bid;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Value;
+import genius.core.issue.ValueDiscrete;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Numbers all values of a discrete domain, value j of the i-th issue gets column offset(i) + j. Anything
+ * that holds one number per value (the estimated utilities, the LP columns) can then be a flat double[]
+ * and a bid is evaluated with one array load per issue, without building strings or boxing.
+ */
+public class ValueIndex {
+    private final List<Issue> issues;
+    private final int[] numbers;
+    //offsets[i] is the first column of the i-th issue, offsets[issues] the number of columns
+    private final int[] offsets;
+    private final HashMap<Value, Integer>[] indices;
+    private final String[] names;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ValueIndex(List<Issue> issues){
+        this.issues = issues;
+        numbers = new int[issues.size()];
+        offsets = new int[issues.size()+1];
+        indices = new HashMap[issues.size()];
+
+        for(int i=0; i<issues.size(); i++){
+            IssueDiscrete issueDiscrete = (IssueDiscrete) issues.get(i);
+            numbers[i] = issueDiscrete.getNumber();
+            indices[i] = new HashMap<>();
+            int counter = 0;
+            for(ValueDiscrete valueDiscrete : issueDiscrete.getValues()){
+                indices[i].put(valueDiscrete, counter);
+                counter++;
+            }
+            offsets[i+1] = offsets[i] + counter;
+        }
+
+        names = new String[offsets[issues.size()]];
+        for(int i=0; i<issues.size(); i++){
+            IssueDiscrete issueDiscrete = (IssueDiscrete) issues.get(i);
+            for(int j=0; j<issueDiscrete.getNumberOfValues(); j++){
+                names[offsets[i]+j] = numbers[i] + issueDiscrete.getValue(j).getValue();
+            }
+        }
+    }
+
+    public List<Issue> getIssues(){
+        return issues;
+    }
+
+    public int getIssueCount(){
+        return numbers.length;
+    }
+
+    /**
+     * @return total number of values over all issues
+     */
+    public int size(){
+        return offsets[numbers.length];
+    }
+
+    public int offset(int issue){
+        return offsets[issue];
+    }
+
+    public int getNumberOfValues(int issue){
+        return offsets[issue+1] - offsets[issue];
+    }
+
+    /**
+     * @return index of the value within its issue
+     */
+    public int indexOf(int issue, Value value){
+        return indices[issue].get(value);
+    }
+
+    /**
+     * @return index of the value the bid has for the i-th issue
+     */
+    public int indexOf(Bid bid, int issue){
+        return indices[issue].get(bid.getValue(numbers[issue]));
+    }
+
+    /**
+     * @return column of the value the bid has for the i-th issue
+     */
+    public int column(Bid bid, int issue){
+        return offsets[issue] + indexOf(bid, issue);
+    }
+
+    /**
+     * @return issue number + value name of a column, the key the agents used to use for values
+     */
+    public String name(int column){
+        return names[column];
+    }
+
+    /**
+     * @return sum of the per value utilities of the bid
+     */
+    public double utility(Bid bid, double[] utilities){
+        double sum = 0.0;
+        for(int i=0; i<numbers.length; i++){
+            sum += utilities[column(bid, i)];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,99 @@
+package group12;
+
+import java.util.stream.IntStream;
+
+/**
+ * Value of information of eliciting a bid: how much the negotiation value of the offer we would choose is
+ * expected to go up once the bid's place in the ranking is known.
+ *
+ * The offer is the known bid with the highest negotiation value v = p * u + (1-p) * a. Eliciting a bid only
+ * helps if it turns out to beat that offer, so its value is E[max(0, p * U + (1-p) * a - v)], with the
+ * bid's utility U taken as normal around the estimate. The spread stands in for how well the estimate
+ * knows the bid: it is larger for bids whose values show up rarely in the ranking, since the estimate of
+ * those values rests on few comparisons. Ranked bids are counted as they are added, so nothing walks the
+ * ranking.
+ *
+ * Candidates are scored in parallel on the common fork/join pool, in chunks that are not started once the
+ * time is up. Unscored candidates get negative infinity.
+ */
+public class VoiScorer {
+    //candidates per parallel task
+    private static final int CHUNK = 64;
+    //spread of the utility of a bid whose values are all missing from the ranking
+    private static final double SIGMA = 0.1;
+
+    private BidCodec codec;
+    private double[] utilities;
+    //number of ranked bids holding every value, by ValueIndex column
+    private int[] counts;
+
+    public VoiScorer(BidCodec codec){
+        this.codec = codec;
+        counts = new int[codec.getValueIndex().size()];
+    }
+
+    /**
+     * Takes a new estimate of the value utilities.
+     */
+    public void setUtilities(double[] utilities){
+        this.utilities = utilities;
+    }
+
+    /**
+     * Counts a bid that was added to the ranking.
+     */
+    public void add(long id){
+        for(int i=0; i<codec.getIssueCount(); i++){
+            counts[codec.column(id, i)]++;
+        }
+    }
+
+    /**
+     * @return expected gain in negotiation value from eliciting the bid, with opponent utility p,
+     * aspiration a and v the negotiation value of the current offer
+     */
+    public double score(long id, double p, double a, double v){
+        double spread = 0;
+        for(int i=0; i<codec.getIssueCount(); i++){
+            spread += 1 / Math.sqrt(1 + counts[codec.column(id, i)]);
+        }
+        spread *= SIGMA / codec.getIssueCount();
+        return expectedGain(p * codec.utility(id, utilities) + (1-p) * a - v, p * spread);
+    }
+
+    /**
+     * Scores the first count ids into scores, stopping after seconds.
+     *
+     * @return number of ids that were scored
+     */
+    public int score(long[] ids, int count, double p, double a, double v, double seconds, double[] scores){
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        int chunks = (count + CHUNK - 1) / CHUNK;
+        return IntStream.range(0, chunks).parallel().map(c -> {
+            int from = c * CHUNK;
+            int to = Math.min(count, from + CHUNK);
+            boolean late = System.nanoTime() > deadline;
+            for(int k=from; k<to; k++){
+                scores[k] = late ? Double.NEGATIVE_INFINITY : score(ids[k], p, a, v);
+            }
+            return late ? 0 : to - from;
+        }).sum();
+    }
+
+    //E[max(0, X)] for X normal with this mean and standard deviation
+    private static double expectedGain(double mean, double sd){
+        if(sd <= 0){
+            return Math.max(0, mean);
+        }
+        double d = mean / sd;
+        return mean * cdf(d) + sd * Math.exp(-d * d / 2) / Math.sqrt(2 * Math.PI);
+    }
+
+    //standard normal distribution function, Abramowitz and Stegun 26.2.17
+    private static double cdf(double x){
+        double t = 1 / (1 + 0.2316419 * Math.abs(x));
+        double poly = t * (0.319381530 + t * (-0.356563782 + t * (1.781477937 + t * (-1.821255978 + t * 1.330274429))));
+        double tail = Math.exp(-x * x / 2) / Math.sqrt(2 * Math.PI) * poly;
+        return x >= 0 ? 1 - tail : tail;
+    }
+}